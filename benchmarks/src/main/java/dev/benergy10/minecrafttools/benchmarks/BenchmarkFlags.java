@@ -0,0 +1,89 @@
+package dev.benergy10.minecrafttools.benchmarks;
+
+import dev.benergy10.minecrafttools.commands.flags.Flag;
+import dev.benergy10.minecrafttools.commands.flags.FlagCreatorTool;
+import dev.benergy10.minecrafttools.commands.flags.FlagGroup;
+import dev.benergy10.minecrafttools.commands.flags.OptionalValueFlag;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Builds flag groups of a given size, cycling through no value, optional value and required value flags.
+ */
+final class BenchmarkFlags {
+
+    static final String SMALL = "small";
+    static final String LARGE = "large";
+
+    private static final int SMALL_SIZE = 3;
+    private static final int LARGE_SIZE = 60;
+
+    static int sizeOf(String groupSize) {
+        return SMALL.equals(groupSize) ? SMALL_SIZE : LARGE_SIZE;
+    }
+
+    static FlagGroup createGroup(int size) {
+        List<Flag<?>> flags = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            flags.add(createFlag(i));
+        }
+        return new FlagGroup(flags);
+    }
+
+    /**
+     * Creates arguments that sets every flag in the group, with a value where the flag accepts one.
+     *
+     * @param size  Size of the group.
+     * @return The arguments.
+     */
+    static String[] createArgs(int size) {
+        List<String> args = new ArrayList<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            args.add(identifier(i));
+            if (i % 3 != 0) {
+                args.add(String.valueOf(i));
+            }
+        }
+        return args.toArray(new String[0]);
+    }
+
+    static String identifier(int index) {
+        return "-flag" + index;
+    }
+
+    private static Flag<?> createFlag(int index) {
+        switch (index % 3) {
+            case 0:
+                return new FlagCreatorTool.BooleanCreator("Flag " + index, identifier(index))
+                        .create();
+            case 1:
+                return new OptionalValueFlag<String>("Flag " + index, identifier(index), String.class) {
+                    @Override
+                    public Collection<String> suggestValue() {
+                        return new ArrayList<>(Arrays.asList("alpha", "beta", "gamma", "delta"));
+                    }
+
+                    @Override
+                    public String getValue(@NotNull String input) {
+                        return input;
+                    }
+
+                    @Override
+                    public String getValue() {
+                        return "none";
+                    }
+                }.deterministic();
+            default:
+                return new FlagCreatorTool.NumberCreator<>("Flag " + index, identifier(index), Integer.class)
+                        .parser(Integer::parseInt)
+                        .range(0, Integer.MAX_VALUE)
+                        .create();
+        }
+    }
+
+    private BenchmarkFlags() { }
+}
@@ -0,0 +1,89 @@
+package dev.benergy10.minecrafttools.benchmarks;
+
+import dev.benergy10.minecrafttools.configs.CommentedYamlFile;
+import dev.benergy10.minecrafttools.configs.ConfigOption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving and reloading of a {@link CommentedYamlFile}, with options spread over nested sections.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class ConfigFileBenchmark {
+
+    private static final int OPTIONS_PER_SECTION = 10;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int optionCount;
+
+    private File directory;
+    private CommentedYamlFile yamlFile;
+    private ConfigOption<Integer> firstOption;
+    private int counter;
+
+    @Setup
+    public void setup() throws IOException {
+        this.directory = Files.createTempDirectory("mctools-bench").toFile();
+        File file = new File(this.directory, "config.yml");
+        // Existing file skips the "created new file" log, so no plugin logger is needed.
+        file.createNewFile();
+
+        List<ConfigOption<?>> options = new ArrayList<>(this.optionCount);
+        for (int i = 0; i < this.optionCount; i++) {
+            ConfigOption<Integer> option = new ConfigOption.Builder<Integer>()
+                    .path("section" + (i / OPTIONS_PER_SECTION) + ".option" + i)
+                    .defaultValue(i)
+                    .comment("Comment for option %s.", i)
+                    .build();
+            if (i == 0) {
+                this.firstOption = option;
+            }
+            options.add(option);
+        }
+        this.yamlFile = new CommentedYamlFile(file, options, "Benchmark config", "");
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = this.directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    @Benchmark
+    public boolean save() {
+        this.yamlFile.setValue(this.firstOption, this.counter++);
+        return this.yamlFile.save();
+    }
+
+    @Benchmark
+    public boolean reload() {
+        return this.yamlFile.reload();
+    }
+}
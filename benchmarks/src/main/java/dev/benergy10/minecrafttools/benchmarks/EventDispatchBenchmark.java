@@ -0,0 +1,106 @@
+package dev.benergy10.minecrafttools.benchmarks;
+
+import dev.benergy10.minecrafttools.events.SubscribableEvent;
+import dev.benergy10.minecrafttools.utils.ReflectHelper;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.EventExecutor;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch of an event through the executor of a {@link SubscribableEvent}.
+ * Registering needs a running server, so the executor is taken out by reflection instead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class EventDispatchBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int subscriberCount;
+
+    private EventExecutor executor;
+    private TargetEvent subscribedEvent;
+    private TargetEvent unsubscribedEvent;
+
+    @Setup
+    public void setup() {
+        SubscribableEvent<TargetEvent, Integer> event = new SubscribableEvent.Creator<TargetEvent, Integer>(TargetEvent.class)
+                .eventTarget(TargetEvent::getTarget)
+                .runner(TargetEvent::handle)
+                .create();
+
+        Field registered = ReflectHelper.getField(SubscribableEvent.class, "registered");
+        try {
+            registered.setBoolean(event, true);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        for (int i = 0; i < this.subscriberCount; i++) {
+            event.subscribe(i);
+        }
+        this.executor = ReflectHelper.invokeMethod(event, ReflectHelper.getMethod(SubscribableEvent.class, "createExecutor"));
+        this.subscribedEvent = new TargetEvent(0);
+        this.unsubscribedEvent = new TargetEvent(-1);
+    }
+
+    @Benchmark
+    public void dispatchToSubscriber(Blackhole blackhole) throws EventException {
+        this.executor.execute(null, this.subscribedEvent);
+        blackhole.consume(this.subscribedEvent.handled);
+    }
+
+    @Benchmark
+    public void dispatchToNonSubscriber(Blackhole blackhole) throws EventException {
+        this.executor.execute(null, this.unsubscribedEvent);
+        blackhole.consume(this.unsubscribedEvent.handled);
+    }
+
+    public static class TargetEvent extends Event {
+
+        private static final HandlerList HANDLERS = new HandlerList();
+
+        public static HandlerList getHandlerList() {
+            return HANDLERS;
+        }
+
+        private final Integer target;
+        private int handled;
+
+        TargetEvent(int target) {
+            this.target = target;
+        }
+
+        Integer getTarget() {
+            return this.target;
+        }
+
+        void handle() {
+            this.handled++;
+        }
+
+        @Override
+        public @NotNull HandlerList getHandlers() {
+            return HANDLERS;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package dev.benergy10.minecrafttools.benchmarks;
+
+import dev.benergy10.minecrafttools.commands.flags.FlagGroup;
+import dev.benergy10.minecrafttools.commands.flags.FlagParseFailedException;
+import dev.benergy10.minecrafttools.commands.flags.FlagParseResult;
+import dev.benergy10.minecrafttools.commands.flags.FlagValues;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of command arguments into {@link FlagValues}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class FlagParseBenchmark {
+
+    @Param({BenchmarkFlags.SMALL, BenchmarkFlags.LARGE})
+    public String groupSize;
+
+    private FlagGroup group;
+    private FlagGroup cachedGroup;
+    private String[] allFlagsArgs;
+    private String[] singleFlagArgs;
+    private String allFlagsLine;
+    private String[] invalidFlagArgs;
+
+    @Setup
+    public void setup() {
+        int size = BenchmarkFlags.sizeOf(this.groupSize);
+        this.group = BenchmarkFlags.createGroup(size);
+        this.cachedGroup = BenchmarkFlags.createGroup(size).enableParseCache(64);
+        this.allFlagsArgs = BenchmarkFlags.createArgs(size);
+        this.singleFlagArgs = new String[] { BenchmarkFlags.identifier(size - 1), "42" };
+        this.allFlagsLine = "command " + String.join(" ", this.allFlagsArgs);
+        this.invalidFlagArgs = new String[] { BenchmarkFlags.identifier(0), "-unknown" };
+    }
+
+    @Benchmark
+    public FlagValues parseAllFlags() {
+        return this.group.parse(this.allFlagsArgs);
+    }
+
+    @Benchmark
+    public FlagValues parseAllFlagsCached() {
+        return this.cachedGroup.parse(this.allFlagsArgs);
+    }
+
+    @Benchmark
+    public FlagValues parseSingleFlag() {
+        return this.group.parse(this.singleFlagArgs);
+    }
+
+    @Benchmark
+    public FlagValues parseAllFlagsLine() {
+        return this.group.parse(this.allFlagsLine, "command".length());
+    }
+
+    @Benchmark
+    public FlagValues parseAllFlagsLineLazily() {
+        return this.group.parseLazily(this.allFlagsLine, "command".length());
+    }
+
+    @Benchmark
+    public Object parseInvalidFlag() {
+        try {
+            return this.group.parse(this.invalidFlagArgs);
+        } catch (FlagParseFailedException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public FlagParseResult tryParseInvalidFlag() {
+        return this.group.tryParse(this.invalidFlagArgs);
+    }
+
+    @Benchmark
+    public FlagValues parseNoArgs() {
+        return this.group.parse(new String[0]);
+    }
+}
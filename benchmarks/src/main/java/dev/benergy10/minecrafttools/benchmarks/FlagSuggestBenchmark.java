@@ -0,0 +1,61 @@
+package dev.benergy10.minecrafttools.benchmarks;
+
+import dev.benergy10.minecrafttools.commands.flags.FlagGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tab-completion of the next flag argument.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class FlagSuggestBenchmark {
+
+    @Param({BenchmarkFlags.SMALL, BenchmarkFlags.LARGE})
+    public String groupSize;
+
+    private FlagGroup group;
+    private String[] newFlagArgs;
+    private String[] optionalValueArgs;
+    private String[] requiredValueArgs;
+
+    @Setup
+    public void setup() {
+        int size = BenchmarkFlags.sizeOf(this.groupSize);
+        this.group = BenchmarkFlags.createGroup(size);
+        this.newFlagArgs = new String[] { BenchmarkFlags.identifier(0), "-fl" };
+        this.optionalValueArgs = new String[] { BenchmarkFlags.identifier(0), BenchmarkFlags.identifier(1), "" };
+        this.requiredValueArgs = new String[] { BenchmarkFlags.identifier(0), BenchmarkFlags.identifier(2), "" };
+    }
+
+    @Benchmark
+    public Collection<String> suggestNewFlag() {
+        return this.group.suggestNextArgument(this.newFlagArgs);
+    }
+
+    @Benchmark
+    public Collection<String> suggestOptionalValue() {
+        return this.group.suggestNextArgument(this.optionalValueArgs);
+    }
+
+    @Benchmark
+    public Collection<String> suggestRequiredValue() {
+        return this.group.suggestNextArgument(this.requiredValueArgs);
+    }
+}
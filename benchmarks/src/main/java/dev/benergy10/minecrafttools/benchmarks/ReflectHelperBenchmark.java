@@ -0,0 +1,79 @@
+package dev.benergy10.minecrafttools.benchmarks;
+
+import dev.benergy10.minecrafttools.utils.ReflectHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups and calls done through {@link ReflectHelper}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class ReflectHelperBenchmark {
+
+    private static final String CLASS_PATH = "java.util.ArrayList";
+
+    private final Target target = new Target();
+    private Method method;
+    private Field field;
+
+    @Setup
+    public void setup() {
+        this.method = ReflectHelper.getMethod(Target.class, "value");
+        this.field = ReflectHelper.getField(Target.class, "number");
+    }
+
+    @Benchmark
+    public Class<?> getCachedClass() {
+        return ReflectHelper.getClass(CLASS_PATH);
+    }
+
+    @Benchmark
+    public boolean hasMissingClass() {
+        return ReflectHelper.hasClass("dev.benergy10.minecrafttools.MissingClass");
+    }
+
+    @Benchmark
+    public Method getMethod() {
+        return ReflectHelper.getMethod(Target.class, "value");
+    }
+
+    @Benchmark
+    public Field getField() {
+        return ReflectHelper.getField(Target.class, "number");
+    }
+
+    @Benchmark
+    public Integer invokeMethod() {
+        return ReflectHelper.invokeMethod(this.target, this.method);
+    }
+
+    @Benchmark
+    public Integer getFieldValue() {
+        return ReflectHelper.getFieldValue(this.target, this.field);
+    }
+
+    static class Target {
+        private int number = 10;
+
+        private int value() {
+            return this.number;
+        }
+    }
+}
@@ -1,32 +1,167 @@
 package dev.benergy10.minecrafttools;
 
 import dev.benergy10.minecrafttools.commands.CommandManager;
+import dev.benergy10.minecrafttools.configs.CommentedYamlFile;
+import dev.benergy10.minecrafttools.configs.ConfigSaver;
+import dev.benergy10.minecrafttools.configs.ConfigWatcher;
+import dev.benergy10.minecrafttools.utils.InitGraph;
+import dev.benergy10.minecrafttools.utils.Lazy;
 import dev.benergy10.minecrafttools.utils.Logging;
+import dev.benergy10.minecrafttools.utils.StartupProfiler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public abstract class MinecraftPlugin extends JavaPlugin {
 
+    protected final StartupProfiler startupProfiler = new StartupProfiler();
     protected CommandManager commandManager;
+    private boolean enableCalled = false;
+    private final Lazy<ConfigSaver> configSaver = Lazy.of(() -> new ConfigSaver(this.getName() + "-config-saver"));
+    private final Lazy<ConfigWatcher> configWatcher = Lazy.of(() -> {
+        try {
+            return new ConfigWatcher(this);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to watch config files", e);
+        }
+    });
 
     @Override
     public final void onLoad() {
-        Logging.setup(this);
-        this.load();
+        this.startupProfiler.runPhase("setup logging", () -> Logging.setup(this));
+        this.startupProfiler.runPhase("load", this::load);
     }
 
     public void load() { }
 
     @Override
     public final void onEnable() {
-        this.commandManager = new CommandManager(this);
-        this.enable();
+        this.registerShutdownListener();
+        this.startupProfiler.runPhase("command manager",
+                () -> this.commandManager = new CommandManager(this, this.startupProfiler));
+        InitGraph initGraph = new InitGraph();
+        this.init(initGraph);
+        if (!initGraph.isEmpty()) {
+            boolean[] success = new boolean[1];
+            this.startupProfiler.runPhase("init", () -> success[0] = initGraph.run(this, this.startupProfiler));
+            if (!success[0]) {
+                Logging.severe("Disabling as plugin init failed.");
+                this.getServer().getPluginManager().disablePlugin(this);
+                return;
+            }
+        }
+        this.enableCalled = true;
+        this.startupProfiler.runPhase("enable", this::enable);
+        this.startupProfiler.finish();
+
+        List<String> report = this.startupProfiler.getReport();
+        Logging.info(report.get(0));
+        report.stream().skip(1).forEach(line -> Logging.debug("%s", line));
     }
 
+    /**
+     * Add init tasks to run before {@link #enable()}. Independent async tasks run in parallel, and if any
+     * task fails the plugin is disabled.
+     *
+     * @param graph The {@link InitGraph} to add tasks to.
+     */
+    public void init(@NotNull InitGraph graph) { }
+
     public void enable() { }
 
+    /**
+     * Calls {@link #disable()} if the plugin enabled successfully. Can still be overridden, the config saver and
+     * watcher are shut down by a {@link PluginDisableEvent} listener either way.
+     */
+    @Override
+    public void onDisable() {
+        // Not called if init failed, as nothing set up in enable() exists yet.
+        if (this.enableCalled) {
+            this.enableCalled = false;
+            this.disable();
+        }
+    }
+
+    public void disable() { }
+
+    /**
+     * Stop the config watcher and saver when this plugin disables, just before {@link #onDisable()}. Config
+     * changes made after that are saved right away.
+     */
+    private void registerShutdownListener() {
+        this.getServer().getPluginManager().registerEvent(
+                PluginDisableEvent.class,
+                new Listener() { },
+                EventPriority.MONITOR,
+                (listener, event) -> {
+                    if (event instanceof PluginDisableEvent && ((PluginDisableEvent) event).getPlugin() == this) {
+                        this.shutdownConfigs();
+                    }
+                },
+                this,
+                false
+        );
+    }
+
+    private void shutdownConfigs() {
+        if (this.configWatcher.isInitialised()) {
+            this.configWatcher.get().shutdown();
+        }
+        if (this.configSaver.isInitialised()) {
+            this.configSaver.get().shutdown();
+        }
+    }
+
+    /**
+     * Create a component that is only set up on first use, instead of at enable. The time it takes is still
+     * recorded by the {@link StartupProfiler}.
+     *
+     * @param name      Name of the component.
+     * @param supplier  Creates the component.
+     * @param <T>       The component type.
+     * @return A {@link Lazy} component.
+     */
+    @NotNull
+    public <T> Lazy<T> lazy(@NotNull String name, @NotNull Supplier<T> supplier) {
+        return Lazy.of(() -> this.startupProfiler.time("lazy", name, supplier));
+    }
+
+    /**
+     * Gets the saver for config files in write-behind mode, see
+     * {@link CommentedYamlFile#enableWriteBehind(ConfigSaver)}. All unsaved changes are saved on disable.
+     *
+     * @return The plugin's {@link ConfigSaver}.
+     */
+    @NotNull
+    public ConfigSaver getConfigSaver() {
+        return this.configSaver.get();
+    }
+
+    /**
+     * Gets the watcher to hot reload config files with, see {@link ConfigWatcher#watch(CommentedYamlFile, Consumer)}.
+     * It is stopped on disable.
+     *
+     * @return The plugin's {@link ConfigWatcher}.
+     */
+    @NotNull
+    public ConfigWatcher getConfigWatcher() {
+        return this.configWatcher.get();
+    }
+
+    @NotNull
+    public StartupProfiler getStartupProfiler() {
+        return startupProfiler;
+    }
+
     @NotNull
     public File getConfigFile() {
         this.getDataFolder().mkdirs();
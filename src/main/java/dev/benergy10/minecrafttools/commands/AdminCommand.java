@@ -0,0 +1,122 @@
+package dev.benergy10.minecrafttools.commands;
+
+import co.aikar.commands.BaseCommand;
+import co.aikar.commands.annotation.CommandAlias;
+import co.aikar.commands.annotation.CommandPermission;
+import co.aikar.commands.annotation.Description;
+import co.aikar.commands.annotation.Subcommand;
+import dev.benergy10.minecrafttools.commands.flags.FlagMetrics;
+import dev.benergy10.minecrafttools.utils.StartupProfiler;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Admin command to inspect the command tools at runtime. Registered with
+ * {@link CommandManager#registerAdminCommand(String, String)}, which sets its alias and permission.
+ */
+@CommandAlias("%" + AdminCommand.ALIAS_REPLACEMENT)
+@CommandPermission("%" + AdminCommand.PERMISSION_REPLACEMENT)
+public class AdminCommand extends BaseCommand {
+
+    static final String ALIAS_REPLACEMENT = "mctoolsadmin";
+    static final String PERMISSION_REPLACEMENT = "mctoolsadminperm";
+    private static final int TIMINGS_SHOWN = 20;
+
+    private final CommandManager commandManager;
+
+    AdminCommand(@NotNull CommandManager commandManager) {
+        this.commandManager = commandManager;
+    }
+
+    @Subcommand("metrics")
+    @Description("Show flag parse and completion metrics.")
+    public void onMetrics(@NotNull CommandSender sender) {
+        this.commandManager.getFlagGroupManager().dumpMetrics().forEach(sender::sendMessage);
+    }
+
+    @Subcommand("metrics enable")
+    @Description("Start recording flag metrics.")
+    public void onMetricsEnable(@NotNull CommandSender sender) {
+        FlagMetrics.setEnabled(true);
+        sender.sendMessage("Flag metrics enabled.");
+    }
+
+    @Subcommand("metrics disable")
+    @Description("Stop recording flag metrics.")
+    public void onMetricsDisable(@NotNull CommandSender sender) {
+        FlagMetrics.setEnabled(false);
+        sender.sendMessage("Flag metrics disabled.");
+    }
+
+    @Subcommand("metrics reset")
+    @Description("Clear recorded flag metrics.")
+    public void onMetricsReset(@NotNull CommandSender sender) {
+        this.commandManager.getFlagGroupManager().resetMetrics();
+        sender.sendMessage("Flag metrics reset.");
+    }
+
+    @Subcommand("timings")
+    @Description("Show command latency, slowest in total first.")
+    public void onTimings(@NotNull CommandSender sender) {
+        CommandTimings timings = this.getCommandTimings(sender);
+        if (timings == null) {
+            return;
+        }
+        List<CommandTimings.Timing> results = timings.getTimings();
+        if (results.isEmpty()) {
+            sender.sendMessage("No commands timed yet.");
+            return;
+        }
+        results.stream().limit(TIMINGS_SHOWN).map(Object::toString).forEach(sender::sendMessage);
+    }
+
+    @Subcommand("timings slow")
+    @Description("Show the most recent slow commands.")
+    public void onTimingsSlow(@NotNull CommandSender sender) {
+        CommandTimings timings = this.getCommandTimings(sender);
+        if (timings == null) {
+            return;
+        }
+        List<CommandTimings.SlowCommand> slowCommands = timings.getSlowCommands();
+        if (slowCommands.isEmpty()) {
+            sender.sendMessage("No slow commands.");
+            return;
+        }
+        slowCommands.stream()
+                .skip(Math.max(0, slowCommands.size() - TIMINGS_SHOWN))
+                .map(Object::toString)
+                .forEach(sender::sendMessage);
+    }
+
+    @Subcommand("timings reset")
+    @Description("Clear command timings and the slow command log.")
+    public void onTimingsReset(@NotNull CommandSender sender) {
+        CommandTimings timings = this.getCommandTimings(sender);
+        if (timings == null) {
+            return;
+        }
+        timings.reset();
+        sender.sendMessage("Command timings reset.");
+    }
+
+    @Subcommand("startup")
+    @Description("Show how long plugin startup took.")
+    public void onStartup(@NotNull CommandSender sender) {
+        StartupProfiler profiler = this.commandManager.getStartupProfiler();
+        if (profiler == null) {
+            sender.sendMessage("Startup was not profiled.");
+            return;
+        }
+        profiler.getReport().forEach(sender::sendMessage);
+    }
+
+    private CommandTimings getCommandTimings(CommandSender sender) {
+        CommandTimings timings = this.commandManager.getCommandTimings();
+        if (timings == null) {
+            sender.sendMessage("Command timings are not enabled.");
+        }
+        return timings;
+    }
+}
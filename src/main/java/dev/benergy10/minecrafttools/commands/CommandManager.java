@@ -1,19 +1,220 @@
 package dev.benergy10.minecrafttools.commands;
 
+import co.aikar.commands.BaseCommand;
 import co.aikar.commands.PaperCommandManager;
+import co.aikar.commands.RootCommand;
 import dev.benergy10.minecrafttools.commands.flags.FlagGroupManager;
+import dev.benergy10.minecrafttools.utils.StartupProfiler;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
 import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
 
 public class CommandManager extends PaperCommandManager {
 
     private final FlagGroupManager flagGroupManager;
+    private FlagParsePipeline flagParsePipeline;
+    private CommandTimings commandTimings;
+    private CommandRateLimiter rateLimiter;
+
+    private final StartupProfiler startupProfiler;
 
     public CommandManager(Plugin plugin) {
+        this(plugin, null);
+    }
+
+    /**
+     * @param plugin            The plugin to manage commands for.
+     * @param startupProfiler   Profiler to record command registration time with, can be null.
+     */
+    public CommandManager(Plugin plugin, @Nullable StartupProfiler startupProfiler) {
         super(plugin);
+        this.startupProfiler = startupProfiler;
         this.flagGroupManager = new FlagGroupManager(this);
+        Bukkit.getPluginManager().registerEvent(
+                PluginDisableEvent.class,
+                new Listener() { },
+                EventPriority.MONITOR,
+                (listener, event) -> {
+                    if (event instanceof PluginDisableEvent && ((PluginDisableEvent) event).getPlugin() == plugin) {
+                        this.shutdown();
+                    }
+                },
+                plugin,
+                false
+        );
     }
 
     public FlagGroupManager getFlagGroupManager() {
         return this.flagGroupManager;
     }
+
+    public @Nullable StartupProfiler getStartupProfiler() {
+        return this.startupProfiler;
+    }
+
+    @Override
+    public void registerCommand(BaseCommand command, boolean force) {
+        if (this.startupProfiler == null) {
+            super.registerCommand(command, force);
+        } else {
+            this.startupProfiler.run("command", command.getClass().getSimpleName(),
+                    () -> super.registerCommand(command, force));
+        }
+        if (this.commandTimings != null || this.rateLimiter != null) {
+            this.wrapRootCommands();
+        }
+    }
+
+    /**
+     * Time every command registered by this manager, including ones registered later. See {@link CommandTimings}.
+     *
+     * @return The {@link CommandTimings}.
+     */
+    public @NotNull CommandTimings enableCommandTimings() {
+        if (this.commandTimings != null) {
+            throw new IllegalStateException("Command timings already enabled!");
+        }
+        this.commandTimings = new CommandTimings();
+        this.wrapRootCommands();
+        return this.commandTimings;
+    }
+
+    /**
+     * Gets the command latency timings.
+     *
+     * @return The {@link CommandTimings} if enabled, else null.
+     */
+    public @Nullable CommandTimings getCommandTimings() {
+        return this.commandTimings;
+    }
+
+    /**
+     * Rate limit commands registered by this manager, including ones registered later. Limits are set per
+     * command on the returned {@link CommandRateLimiter}, commands without one are not limited.
+     *
+     * @return The {@link CommandRateLimiter}.
+     */
+    public @NotNull CommandRateLimiter enableRateLimiting() {
+        if (this.rateLimiter != null) {
+            throw new IllegalStateException("Rate limiting already enabled!");
+        }
+        this.rateLimiter = new CommandRateLimiter(this.getPlugin());
+        this.wrapRootCommands();
+        return this.rateLimiter;
+    }
+
+    /**
+     * Gets the command rate limiter.
+     *
+     * @return The {@link CommandRateLimiter} if enabled, else null.
+     */
+    public @Nullable CommandRateLimiter getRateLimiter() {
+        return this.rateLimiter;
+    }
+
+    /**
+     * Replace this manager's root commands in the server command map with wrappers that rate limit and time
+     * them, for every label and alias they are known by. Commands already wrapped are left as is.
+     */
+    private void wrapRootCommands() {
+        Set<RootCommand> rootCommands = Collections.newSetFromMap(new IdentityHashMap<>());
+        rootCommands.addAll(this.getRegisteredRootCommands());
+        Map<Command, ManagedCommand> wrappers = new IdentityHashMap<>();
+        for (Map.Entry<String, Command> entry : Bukkit.getCommandMap().getKnownCommands().entrySet()) {
+            Command command = entry.getValue();
+            if (command instanceof RootCommand && rootCommands.contains(command)) {
+                entry.setValue(wrappers.computeIfAbsent(command, c -> new ManagedCommand(c, this)));
+            }
+        }
+    }
+
+    /**
+     * Put back the original commands in the server command map.
+     */
+    private void unwrapRootCommands() {
+        for (Map.Entry<String, Command> entry : Bukkit.getCommandMap().getKnownCommands().entrySet()) {
+            Command command = entry.getValue();
+            if (command instanceof ManagedCommand && ((ManagedCommand) command).getManager() == this) {
+                entry.setValue(((ManagedCommand) command).getDelegate());
+            }
+        }
+    }
+
+    /**
+     * Enable parsing flags on a pool of worker threads, see {@link FlagParsePipeline}.
+     *
+     * @param workerThreads Number of worker threads.
+     * @return The {@link FlagParsePipeline}.
+     */
+    public @NotNull FlagParsePipeline enableFlagParsePipeline(int workerThreads) {
+        if (this.flagParsePipeline != null) {
+            throw new IllegalStateException("Flag parse pipeline already enabled!");
+        }
+        this.flagParsePipeline = new FlagParsePipeline(this, workerThreads);
+        return this.flagParsePipeline;
+    }
+
+    /**
+     * Gets the off-main-thread flag parse pipeline.
+     *
+     * @return The {@link FlagParsePipeline} if enabled, else null.
+     */
+    public @Nullable FlagParsePipeline getFlagParsePipeline() {
+        return this.flagParsePipeline;
+    }
+
+    /**
+     * Release resources held by the command tools. Called by a {@link PluginDisableEvent} listener when the
+     * plugin disables.
+     */
+    public void shutdown() {
+        if (this.commandTimings != null || this.rateLimiter != null) {
+            this.unwrapRootCommands();
+            this.commandTimings = null;
+        }
+        if (this.rateLimiter != null) {
+            this.rateLimiter.shutdown();
+            this.rateLimiter = null;
+        }
+        if (this.flagParsePipeline != null) {
+            this.flagParsePipeline.shutdown();
+            this.flagParsePipeline = null;
+        }
+    }
+
+    /**
+     * Register the {@link AdminCommand}, which shows metrics and other runtime info of the command tools.
+     *
+     * @param alias         Alias of the command, e.g. {@code "myplugin-admin"}.
+     * @param permission    Permission required to use the command.
+     * @return The registered {@link AdminCommand}.
+     */
+    public @NotNull AdminCommand registerAdminCommand(@NotNull String alias, @NotNull String permission) {
+        this.getCommandReplacements().addReplacement(AdminCommand.ALIAS_REPLACEMENT, alias);
+        this.getCommandReplacements().addReplacement(AdminCommand.PERMISSION_REPLACEMENT, permission);
+        AdminCommand adminCommand = new AdminCommand(this);
+        this.registerCommand(adminCommand);
+        return adminCommand;
+    }
+
+    /**
+     * Create a runner for a file of commands, see {@link CommandScript}.
+     *
+     * @param file  The command file.
+     * @return A {@link CommandScript.Creator} to configure and start the script with.
+     */
+    public @NotNull CommandScript.Creator newScript(@NotNull File file) {
+        return new CommandScript.Creator(this.getPlugin(), file);
+    }
 }
@@ -0,0 +1,279 @@
+package dev.benergy10.minecrafttools.commands;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.BlockCommandSender;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Per sender rate limiting of commands, enabled with {@link CommandManager#enableRateLimiting()}.</p>
+ *
+ * <p>Each sender has a token bucket per limited command, kept as a single theoretical arrival time that is
+ * updated lock-free. A sender under the limit costs two map lookups and one compare-and-set. Limits are set
+ * per command name, e.g. {@code "mv"}, or per subcommand, e.g. {@code "mv create"}, which takes precedence.</p>
+ *
+ * <p>Commands can also be coalesced, so an identical command from the same sender within the same tick
+ * only runs once.</p>
+ *
+ * <p>Players are tracked by UUID and command blocks by location. Other senders are tracked by name, and
+ * the console is never limited.</p>
+ */
+public class CommandRateLimiter {
+
+    private static final long CLEANUP_PERIOD_TICKS = 20L * 60;
+
+    private final Map<String, Limit> limits;
+    private final Map<String, Map<Object, AtomicLong>> buckets;
+    private final Map<Object, Invocation> lastInvocations;
+    private final BukkitTask cleanupTask;
+
+    private volatile String bypassPermission;
+    private volatile String denyMessage = "You are running this command too quickly, try again in %.1f seconds.";
+
+    CommandRateLimiter(@NotNull Plugin plugin) {
+        this.limits = new ConcurrentHashMap<>();
+        this.buckets = new ConcurrentHashMap<>();
+        this.lastInvocations = new ConcurrentHashMap<>();
+        this.cleanupTask = Bukkit.getScheduler()
+                .runTaskTimerAsynchronously(plugin, this::cleanup, CLEANUP_PERIOD_TICKS, CLEANUP_PERIOD_TICKS);
+    }
+
+    /**
+     * Limit a command to a number of runs over a period per sender. Up to that many runs can happen
+     * back to back, after which runs are allowed again at the steady rate.
+     *
+     * @param command   Command name or subcommand key.
+     * @param permits   Runs allowed per period.
+     * @param period    The period.
+     * @param unit      Time unit of the period.
+     * @return This {@link CommandRateLimiter}.
+     */
+    public @NotNull CommandRateLimiter limit(@NotNull String command,
+                                             int permits,
+                                             long period,
+                                             @NotNull TimeUnit unit) {
+
+        if (permits <= 0 || period <= 0) {
+            throw new IllegalArgumentException("Rate limit permits and period must be positive!");
+        }
+        long emissionInterval = Math.max(1, unit.toNanos(period) / permits);
+        String key = command.toLowerCase();
+        Limit current = this.limits.get(key);
+        this.limits.put(key, new Limit(emissionInterval, emissionInterval * (permits - 1),
+                current != null && current.coalesce));
+        this.buckets.remove(key);
+        return this;
+    }
+
+    /**
+     * Run identical invocations of a command from the same sender only once per tick.
+     *
+     * @param command   Command name or subcommand key.
+     * @return This {@link CommandRateLimiter}.
+     */
+    public @NotNull CommandRateLimiter coalesce(@NotNull String command) {
+        String key = command.toLowerCase();
+        Limit current = this.limits.get(key);
+        this.limits.put(key, current != null
+                ? new Limit(current.emissionInterval, current.tolerance, true)
+                : new Limit(0, 0, true));
+        return this;
+    }
+
+    /**
+     * Remove the rate limit and coalescing of a command.
+     *
+     * @param command   Command name or subcommand key.
+     * @return This {@link CommandRateLimiter}.
+     */
+    public @NotNull CommandRateLimiter removeLimit(@NotNull String command) {
+        String key = command.toLowerCase();
+        this.limits.remove(key);
+        this.buckets.remove(key);
+        return this;
+    }
+
+    /**
+     * Senders with this permission are never limited.
+     *
+     * @param permission    The bypass permission, or null for none.
+     * @return This {@link CommandRateLimiter}.
+     */
+    public @NotNull CommandRateLimiter bypassPermission(@Nullable String permission) {
+        this.bypassPermission = permission;
+        return this;
+    }
+
+    /**
+     * Message sent to limited senders, formatted with the seconds to wait.
+     *
+     * @param denyMessage   The message format.
+     * @return This {@link CommandRateLimiter}.
+     */
+    public @NotNull CommandRateLimiter denyMessage(@NotNull String denyMessage) {
+        this.denyMessage = denyMessage;
+        return this;
+    }
+
+    /**
+     * Try to run a command.
+     *
+     * @param sender        The command sender.
+     * @param commandName   Name of the root command.
+     * @param key           Command or subcommand key being run.
+     * @param args          The command arguments.
+     * @return True if the command can run, else false.
+     */
+    boolean tryAcquire(@NotNull CommandSender sender,
+                       @NotNull String commandName,
+                       @NotNull String key,
+                       @NotNull String[] args) {
+
+        if (this.limits.isEmpty()) {
+            return true;
+        }
+        String limitKey = key;
+        Limit limit = this.limits.get(key);
+        if (limit == null) {
+            limitKey = commandName.toLowerCase();
+            limit = this.limits.get(limitKey);
+        }
+        if (limit == null || sender instanceof ConsoleCommandSender) {
+            return true;
+        }
+        String permission = this.bypassPermission;
+        if (permission != null && sender.hasPermission(permission)) {
+            return true;
+        }
+
+        Object senderId = getSenderId(sender);
+        if (limit.coalesce && this.isDuplicate(senderId, limitKey, args)) {
+            return false;
+        }
+        if (limit.emissionInterval <= 0) {
+            return true;
+        }
+        long waitNanos = limit.acquire(this.getBucket(limitKey, senderId), System.nanoTime());
+        if (waitNanos > 0) {
+            sender.sendMessage(String.format(this.denyMessage, waitNanos / 1e9));
+            return false;
+        }
+        return true;
+    }
+
+    private AtomicLong getBucket(String limitKey, Object senderId) {
+        Map<Object, AtomicLong> senderBuckets = this.buckets.get(limitKey);
+        if (senderBuckets == null) {
+            senderBuckets = this.buckets.computeIfAbsent(limitKey, k -> new ConcurrentHashMap<>());
+        }
+        AtomicLong bucket = senderBuckets.get(senderId);
+        if (bucket == null) {
+            bucket = senderBuckets.computeIfAbsent(senderId, k -> new AtomicLong(System.nanoTime()));
+        }
+        return bucket;
+    }
+
+    private boolean isDuplicate(Object senderId, String limitKey, String[] args) {
+        Invocation invocation = new Invocation(Bukkit.getCurrentTick(), limitKey, String.join(" ", args));
+        Invocation last = this.lastInvocations.put(senderId, invocation);
+        return invocation.equals(last);
+    }
+
+    private static Object getSenderId(CommandSender sender) {
+        if (sender instanceof Player) {
+            return ((Player) sender).getUniqueId();
+        }
+        if (sender instanceof BlockCommandSender) {
+            return ((BlockCommandSender) sender).getBlock().getLocation();
+        }
+        return sender.getName();
+    }
+
+    /**
+     * Drop buckets that are full again and invocations from past ticks, so idle senders take no memory.
+     */
+    private void cleanup() {
+        long now = System.nanoTime();
+        for (Map<Object, AtomicLong> senderBuckets : this.buckets.values()) {
+            senderBuckets.entrySet().removeIf(entry -> entry.getValue().get() - now <= 0);
+        }
+        int tick = Bukkit.getCurrentTick();
+        this.lastInvocations.values().removeIf(invocation -> invocation.tick != tick);
+    }
+
+    void shutdown() {
+        this.cleanupTask.cancel();
+    }
+
+    /**
+     * Generic cell rate limit: a run is allowed when the theoretical arrival time is at most
+     * {@link #tolerance} ahead of now, which then moves forward by {@link #emissionInterval}.
+     */
+    private static final class Limit {
+        private final long emissionInterval;
+        private final long tolerance;
+        private final boolean coalesce;
+
+        private Limit(long emissionInterval, long tolerance, boolean coalesce) {
+            this.emissionInterval = emissionInterval;
+            this.tolerance = tolerance;
+            this.coalesce = coalesce;
+        }
+
+        /**
+         * @return 0 if acquired, else nanoseconds until a run is allowed.
+         */
+        private long acquire(AtomicLong bucket, long now) {
+            while (true) {
+                long arrival = bucket.get();
+                long start = arrival - now < 0 ? now : arrival;
+                long ahead = start - now;
+                if (ahead > this.tolerance) {
+                    return ahead - this.tolerance;
+                }
+                if (bucket.compareAndSet(arrival, start + this.emissionInterval)) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    private static final class Invocation {
+        private final int tick;
+        private final String key;
+        private final String arguments;
+
+        private Invocation(int tick, String key, String arguments) {
+            this.tick = tick;
+            this.key = key;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Invocation)) {
+                return false;
+            }
+            Invocation other = (Invocation) o;
+            return this.tick == other.tick && this.key.equals(other.key) && this.arguments.equals(other.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * this.tick + this.key.hashCode()) + this.arguments.hashCode();
+        }
+    }
+}
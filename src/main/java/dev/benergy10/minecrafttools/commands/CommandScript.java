@@ -0,0 +1,489 @@
+package dev.benergy10.minecrafttools.commands;
+
+import dev.benergy10.minecrafttools.commands.flags.Flag;
+import dev.benergy10.minecrafttools.commands.flags.FlagGroup;
+import dev.benergy10.minecrafttools.commands.flags.FlagParseResult;
+import dev.benergy10.minecrafttools.utils.Logging;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * <p>Runs a file of commands, one command per line. Blank lines and lines starting with {@code #} are skipped.</p>
+ *
+ * <p>The file is read and the flags of every line are checked in parallel off the main thread first. Only lines
+ * starting with a prefix registered with {@link Creator#flags(String, int, FlagGroup)} are checked, the number of
+ * unchecked lines is reported. Flags are parsed right after the prefix and its positional arguments, so unknown
+ * flags and missing arguments are errors too. If any line fails to parse, all errors are reported and nothing is
+ * run. Otherwise commands are dispatched on the main thread, running as many as fit in the tick budget each
+ * tick.</p>
+ *
+ * <p>The parse results are only used for checking. Each command is parsed again on the main thread when it is
+ * dispatched, as usual.</p>
+ */
+public class CommandScript {
+
+    public enum State {
+        CREATED, PARSING, FAILED, RUNNING, CANCELLED, COMPLETED
+    }
+
+    private final Plugin plugin;
+    private final File file;
+    private final Map<String, ScriptFlags> flagGroups;
+    private final AtomicReference<State> state;
+
+    private CommandSender sender;
+    private long tickBudgetNanos = TimeUnit.MILLISECONDS.toNanos(10);
+    private int progressInterval = 100;
+    private int maxPrefixWords = 0;
+
+    private List<Line> lines = Collections.emptyList();
+    private List<LineError> errors = Collections.emptyList();
+    private BukkitTask task;
+    private int nextIndex = 0;
+    private int failedCount = 0;
+    private int uncheckedCount = 0;
+    private volatile int runCount = 0;
+
+    private CommandScript(@NotNull Plugin plugin, @NotNull File file) {
+        this.plugin = plugin;
+        this.file = file;
+        this.flagGroups = new HashMap<>();
+        this.state = new AtomicReference<>(State.CREATED);
+    }
+
+    /**
+     * Start reading and parsing the script asynchronously. Commands are run once parsing succeeds.
+     *
+     * @return This {@link CommandScript}.
+     */
+    public @NotNull CommandScript start() {
+        if (!this.state.compareAndSet(State.CREATED, State.PARSING)) {
+            throw new IllegalStateException("Script already started!");
+        }
+        Logging.debug("Parsing command script %s...", this.file.getName());
+        Bukkit.getScheduler().runTaskAsynchronously(this.plugin, this::parseAll);
+        return this;
+    }
+
+    /**
+     * Stop the script. Commands already run are not undone.
+     *
+     * @return True if the script was parsing or running, else false.
+     */
+    public boolean cancel() {
+        if (!this.state.compareAndSet(State.PARSING, State.CANCELLED)
+                && !this.state.compareAndSet(State.RUNNING, State.CANCELLED)) {
+            return false;
+        }
+        Bukkit.getScheduler().runTask(this.plugin, () -> {
+            this.stopTask();
+            this.sender.sendMessage(String.format("Script %s cancelled after %d/%d commands.",
+                    this.file.getName(), this.runCount, this.lines.size()));
+        });
+        return true;
+    }
+
+    private void parseAll() {
+        List<String> rawLines;
+        try {
+            rawLines = Files.readAllLines(this.file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Logging.severe("Unable to read command script %s: %s", this.file.getName(), e.getMessage());
+            this.finishParse(Collections.emptyList(), Collections.singletonList(
+                    new LineError(0, "", "Unable to read file: " + e.getMessage())), 0);
+            return;
+        }
+
+        List<Line> lines = new ArrayList<>(rawLines.size());
+        for (int i = 0; i < rawLines.size(); i++) {
+            String command = rawLines.get(i).trim();
+            if (command.isEmpty() || command.charAt(0) == '#') {
+                continue;
+            }
+            if (command.charAt(0) == '/') {
+                command = command.substring(1);
+            }
+            lines.add(new Line(i + 1, command));
+        }
+
+        List<LineError> errors = IntStream.range(0, lines.size())
+                .parallel()
+                .mapToObj(i -> this.parseLine(lines.get(i)))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        int unchecked = (int) lines.stream().filter(line -> !line.checked).count();
+        this.finishParse(lines, errors, unchecked);
+    }
+
+    private void finishParse(List<Line> lines, List<LineError> errors, int unchecked) {
+        Bukkit.getScheduler().runTask(this.plugin, () -> {
+            this.lines = Collections.unmodifiableList(lines);
+            this.errors = Collections.unmodifiableList(errors);
+            this.uncheckedCount = unchecked;
+            if (!errors.isEmpty()) {
+                if (this.state.compareAndSet(State.PARSING, State.FAILED)) {
+                    this.reportErrors();
+                }
+                return;
+            }
+            if (!this.state.compareAndSet(State.PARSING, State.RUNNING)) {
+                return;
+            }
+            this.sender.sendMessage(String.format("Running script %s with %d commands...",
+                    this.file.getName(), lines.size()));
+            if (unchecked > 0) {
+                this.sender.sendMessage(String.format("%d commands have no flag group and were not checked.",
+                        unchecked));
+            }
+            this.task = Bukkit.getScheduler().runTaskTimer(this.plugin, this::runTick, 1L, 1L);
+        });
+    }
+
+    /**
+     * Parse the flags of a line, if its command has a flag group. Marks the line as checked if it has one.
+     *
+     * @param line  The line to parse.
+     * @return A {@link LineError} if failed, else null.
+     */
+    private @Nullable LineError parseLine(Line line) {
+        String command = line.command;
+        List<int[]> words = splitWords(command);
+        for (int count = Math.min(this.maxPrefixWords, words.size()); count > 0; count--) {
+            int end = words.get(count - 1)[1];
+            ScriptFlags flags = this.flagGroups.get(command.substring(0, end).toLowerCase().replaceAll("\\s+", " "));
+            if (flags != null) {
+                line.checked = true;
+                return flags.check(line, words, count);
+            }
+        }
+        return null;
+    }
+
+    private static List<int[]> splitWords(String command) {
+        List<int[]> words = new ArrayList<>();
+        int i = 0;
+        while (i < command.length()) {
+            while (i < command.length() && Character.isWhitespace(command.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < command.length() && !Character.isWhitespace(command.charAt(i))) {
+                i++;
+            }
+            if (start < i) {
+                words.add(new int[] { start, i });
+            }
+        }
+        return words;
+    }
+
+
+    private void reportErrors() {
+        this.sender.sendMessage(String.format("Script %s has %d errors, no commands were run:",
+                this.file.getName(), this.errors.size()));
+        for (LineError error : this.errors) {
+            this.sender.sendMessage(error.getLineNumber() > 0
+                    ? String.format("Line %d: %s", error.getLineNumber(), error.getMessage())
+                    : error.getMessage());
+        }
+    }
+
+    private void runTick() {
+        if (this.state.get() != State.RUNNING) {
+            this.stopTask();
+            return;
+        }
+        long deadline = System.nanoTime() + this.tickBudgetNanos;
+        int startIndex = this.nextIndex;
+        // Always run at least one command per tick so the script makes progress.
+        while (this.nextIndex < this.lines.size()
+                && (this.nextIndex == startIndex || System.nanoTime() < deadline)) {
+            this.dispatch(this.lines.get(this.nextIndex++));
+            this.runCount = this.nextIndex;
+            if (this.progressInterval > 0 && this.nextIndex % this.progressInterval == 0
+                    && this.nextIndex < this.lines.size()) {
+                this.sender.sendMessage(String.format("Script %s: %d/%d commands run.",
+                        this.file.getName(), this.nextIndex, this.lines.size()));
+            }
+            if (this.state.get() != State.RUNNING) {
+                this.stopTask();
+                return;
+            }
+        }
+        if (this.nextIndex >= this.lines.size() && this.state.compareAndSet(State.RUNNING, State.COMPLETED)) {
+            this.stopTask();
+            this.sender.sendMessage(String.format("Script %s completed, %d commands run with %d failed.",
+                    this.file.getName(), this.lines.size(), this.failedCount));
+        }
+    }
+
+    private void dispatch(Line line) {
+        try {
+            if (!Bukkit.dispatchCommand(this.sender, line.command)) {
+                this.failedCount++;
+                Logging.warning("Script %s line %d: unknown command.", this.file.getName(), line.number);
+            }
+        } catch (RuntimeException e) {
+            this.failedCount++;
+            Logging.warning("Script %s line %d failed: %s", this.file.getName(), line.number, e.getMessage());
+        }
+    }
+
+    private void stopTask() {
+        if (this.task != null) {
+            this.task.cancel();
+            this.task = null;
+        }
+    }
+
+    public @NotNull File getFile() {
+        return file;
+    }
+
+    public @NotNull State getState() {
+        return state.get();
+    }
+
+    /**
+     * Gets the errors found while parsing, available once parsing is done.
+     *
+     * @return An unmodifiable list of {@link LineError}.
+     */
+    public @NotNull List<LineError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the number of commands to run, available once parsing is done.
+     *
+     * @return The command count.
+     */
+    public int getCommandCount() {
+        return lines.size();
+    }
+
+    public int getRunCount() {
+        return runCount;
+    }
+
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Gets the number of commands without a flag group, whose flags were not checked before running.
+     * Available once parsing is done.
+     *
+     * @return The unchecked command count.
+     */
+    public int getUncheckedCount() {
+        return uncheckedCount;
+    }
+
+    /**
+     * Flag group of a command prefix, with the number of positional arguments before its flags.
+     */
+    private static final class ScriptFlags {
+        private final FlagGroup group;
+        private final int positionalArgs;
+        private final String keyStarts;
+
+        private ScriptFlags(FlagGroup group, int positionalArgs) {
+            this.group = group;
+            this.positionalArgs = positionalArgs;
+            StringBuilder keyStarts = new StringBuilder();
+            for (Flag<?> flag : group.getFlags()) {
+                addKeyStart(keyStarts, flag.getIdentifier());
+                for (String alias : flag.getAliases()) {
+                    addKeyStart(keyStarts, alias);
+                }
+            }
+            this.keyStarts = keyStarts.toString();
+        }
+
+        /**
+         * Keys starting with a symbol, e.g. {@code -}, mark every word starting with it as a flag.
+         */
+        private static void addKeyStart(StringBuilder keyStarts, String key) {
+            if (key.isEmpty() || Character.isLetterOrDigit(key.charAt(0))) {
+                return;
+            }
+            if (keyStarts.indexOf(key.substring(0, 1)) < 0) {
+                keyStarts.append(key.charAt(0));
+            }
+        }
+
+        private boolean looksLikeFlag(String command, int[] word) {
+            return this.group.getByKey(command, word[0], word[1]) != null
+                    || this.keyStarts.indexOf(command.charAt(word[0])) >= 0;
+        }
+
+        /**
+         * Parse the flags after the prefix and positional arguments of a line.
+         *
+         * @param line          The line to parse.
+         * @param words         Start and end index of each word in the line.
+         * @param prefixWords   Number of words in the matched prefix.
+         * @return A {@link LineError} if failed, else null.
+         */
+        private @Nullable LineError check(Line line, List<int[]> words, int prefixWords) {
+            String command = line.command;
+            int flagsStart = prefixWords + this.positionalArgs;
+            for (int i = prefixWords; i < Math.min(flagsStart, words.size()); i++) {
+                if (this.looksLikeFlag(command, words.get(i))) {
+                    return new LineError(line.number, command, String.format(
+                            "Expected %d arguments before flags, but found flag '%s'.",
+                            this.positionalArgs, command.substring(words.get(i)[0], words.get(i)[1])));
+                }
+            }
+            if (words.size() < flagsStart) {
+                return new LineError(line.number, command, String.format(
+                        "Expected %d arguments before flags, but found %d.",
+                        this.positionalArgs, words.size() - prefixWords));
+            }
+            int offset = words.get(flagsStart - 1)[1];
+            FlagParseResult result = this.group.tryParse(command, offset);
+            return result.isSuccess() ? null : new LineError(line.number, command, result.getMessage());
+        }
+    }
+
+    private static final class Line {
+        private final int number;
+        private final String command;
+        private boolean checked = false;
+
+        private Line(int number, String command) {
+            this.number = number;
+            this.command = command;
+        }
+    }
+
+    /**
+     * A script line that failed to parse. Line number is 0 if the file itself could not be read.
+     */
+    public static final class LineError {
+        private final int lineNumber;
+        private final String line;
+        private final String message;
+
+        private LineError(int lineNumber, String line, String message) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.message = message;
+        }
+
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        public @NotNull String getLine() {
+            return line;
+        }
+
+        public @NotNull String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "LineError{" +
+                    "lineNumber=" + lineNumber +
+                    ", line='" + line + '\'' +
+                    ", message='" + message + '\'' +
+                    '}';
+        }
+    }
+
+    public static class Creator {
+
+        private final CommandScript script;
+
+        public Creator(@NotNull Plugin plugin, @NotNull File file) {
+            this.script = new CommandScript(plugin, file);
+        }
+
+        /**
+         * Sender to run commands as and report progress to. Defaults to console.
+         */
+        public @NotNull Creator sender(@NotNull CommandSender sender) {
+            this.script.sender = sender;
+            return this;
+        }
+
+        /**
+         * Parse flags of commands starting with a prefix, e.g. {@code "mv regen"}. Flags start right after the
+         * prefix. The longest matching prefix is used.
+         */
+        public @NotNull Creator flags(@NotNull String commandPrefix, @NotNull FlagGroup group) {
+            return this.flags(commandPrefix, 0, group);
+        }
+
+        /**
+         * Parse flags of commands starting with a prefix, e.g. {@code "mv create"} with 2 positional arguments
+         * for name and environment. Flags start right after the positional arguments, which must not be flags.
+         * The longest matching prefix is used.
+         */
+        public @NotNull Creator flags(@NotNull String commandPrefix, int positionalArgs, @NotNull FlagGroup group) {
+            String prefix = commandPrefix.trim().toLowerCase().replaceAll("\\s+", " ");
+            if (prefix.isEmpty()) {
+                throw new IllegalArgumentException("Command prefix cannot be empty!");
+            }
+            if (positionalArgs < 0) {
+                throw new IllegalArgumentException("Positional arguments cannot be negative!");
+            }
+            this.script.flagGroups.put(prefix, new ScriptFlags(group, positionalArgs));
+            this.script.maxPrefixWords = Math.max(this.script.maxPrefixWords, prefix.split(" ").length);
+            return this;
+        }
+
+        /**
+         * Max time spent running commands per tick. At least one command is run every tick.
+         */
+        public @NotNull Creator tickBudget(long millis) {
+            if (millis <= 0) {
+                throw new IllegalArgumentException("Tick budget must be positive!");
+            }
+            this.script.tickBudgetNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+            return this;
+        }
+
+        /**
+         * Report progress every this many commands, or 0 to only report start and end.
+         */
+        public @NotNull Creator progressInterval(int commands) {
+            this.script.progressInterval = Math.max(commands, 0);
+            return this;
+        }
+
+        public @NotNull CommandScript create() {
+            if (this.script.sender == null) {
+                this.script.sender = Bukkit.getConsoleSender();
+            }
+            return this.script;
+        }
+
+        public @NotNull CommandScript start() {
+            return this.create().start();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package dev.benergy10.minecrafttools.commands;
+
+import dev.benergy10.minecrafttools.utils.Logging;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Latency of commands run through a {@link CommandManager}, enabled with
+ * {@link CommandManager#enableCommandTimings()}.</p>
+ *
+ * <p>Timings are kept per command, and per subcommand when the arguments match one. Each keeps a call count,
+ * total time and the most recent durations, from which percentiles are taken. Commands slower than the slow
+ * threshold are logged with their sender and arguments.</p>
+ */
+public class CommandTimings {
+
+    public static final long DEFAULT_SLOW_THRESHOLD_MILLIS = 50;
+    public static final int DEFAULT_WINDOW_SIZE = 1024;
+    public static final int SLOW_LOG_SIZE = 100;
+
+    private final Map<String, Timing> timings;
+    private final Deque<SlowCommand> slowCommands;
+    private volatile boolean enabled = true;
+    private volatile long slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_THRESHOLD_MILLIS);
+    private volatile int windowSize = DEFAULT_WINDOW_SIZE;
+
+    CommandTimings() {
+        this.timings = new ConcurrentHashMap<>();
+        this.slowCommands = new ArrayDeque<>(SLOW_LOG_SIZE);
+    }
+
+    /**
+     * Record a command run.
+     *
+     * @param key       The command or subcommand key.
+     * @param sender    The command sender.
+     * @param label     The label the command was run with.
+     * @param args      The command arguments.
+     * @param nanos     How long the command took.
+     */
+    void record(@NotNull String key,
+                @NotNull CommandSender sender,
+                @NotNull String label,
+                @NotNull String[] args,
+                long nanos) {
+
+        this.timings.computeIfAbsent(key, k -> new Timing(k, this.windowSize)).record(nanos);
+        if (nanos < this.slowThresholdNanos) {
+            return;
+        }
+        SlowCommand slowCommand = new SlowCommand(sender.getName(), label, String.join(" ", args), nanos);
+        Logging.warning("Slow command: %s", slowCommand);
+        synchronized (this.slowCommands) {
+            if (this.slowCommands.size() >= SLOW_LOG_SIZE) {
+                this.slowCommands.removeFirst();
+            }
+            this.slowCommands.addLast(slowCommand);
+        }
+    }
+
+    /**
+     * Gets timing of a command, e.g. {@code "mv"}, or subcommand, e.g. {@code "mv create"}.
+     *
+     * @param key   The command or subcommand key, in lowercase.
+     * @return The {@link Timing} if the command has been run, else null.
+     */
+    public @Nullable Timing getTiming(@NotNull String key) {
+        return this.timings.get(key);
+    }
+
+    /**
+     * Gets all timings, with the most total time first.
+     *
+     * @return A list of {@link Timing}.
+     */
+    public @NotNull List<Timing> getTimings() {
+        List<Timing> sorted = new ArrayList<>(this.timings.values());
+        sorted.sort(Comparator.comparingLong(Timing::getTotalNanos).reversed());
+        return sorted;
+    }
+
+    /**
+     * Gets the most recent slow commands, oldest first.
+     *
+     * @return A list of {@link SlowCommand}.
+     */
+    public @NotNull List<SlowCommand> getSlowCommands() {
+        synchronized (this.slowCommands) {
+            return new ArrayList<>(this.slowCommands);
+        }
+    }
+
+    public void reset() {
+        this.timings.clear();
+        synchronized (this.slowCommands) {
+            this.slowCommands.clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Pause or resume recording. Commands stay wrapped, so this can be toggled at any time.
+     *
+     * @param enabled   Whether to record.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getSlowThreshold(@NotNull TimeUnit unit) {
+        return unit.convert(this.slowThresholdNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void setSlowThreshold(long threshold, @NotNull TimeUnit unit) {
+        this.slowThresholdNanos = unit.toNanos(threshold);
+    }
+
+    /**
+     * Set how many recent durations to take percentiles from. Applies to commands first run after this.
+     *
+     * @param windowSize    Number of durations kept per command.
+     */
+    public void setWindowSize(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive!");
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Timing of a command or subcommand.
+     */
+    public static final class Timing {
+
+        private final String key;
+        private final LongAdder calls;
+        private final LongAdder totalNanos;
+        private final long[] window;
+        private int windowIndex = 0;
+        private int windowCount = 0;
+
+        private Timing(String key, int windowSize) {
+            this.key = key;
+            this.calls = new LongAdder();
+            this.totalNanos = new LongAdder();
+            this.window = new long[windowSize];
+        }
+
+        private void record(long nanos) {
+            this.calls.increment();
+            this.totalNanos.add(nanos);
+            synchronized (this.window) {
+                this.window[this.windowIndex] = nanos;
+                this.windowIndex = (this.windowIndex + 1) % this.window.length;
+                this.windowCount = Math.min(this.windowCount + 1, this.window.length);
+            }
+        }
+
+        public @NotNull String getKey() {
+            return key;
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * Gets percentiles of the most recent durations.
+         *
+         * @param percentiles   Percentiles to get, from 0 to 100.
+         * @return Duration in nanoseconds at each percentile, or 0 if there are none.
+         */
+        public long[] getPercentileNanos(double... percentiles) {
+            long[] recent;
+            synchronized (this.window) {
+                recent = Arrays.copyOf(this.window, this.windowCount);
+            }
+            Arrays.sort(recent);
+            long[] results = new long[percentiles.length];
+            if (recent.length == 0) {
+                return results;
+            }
+            for (int i = 0; i < percentiles.length; i++) {
+                int rank = (int) Math.ceil(Math.max(0, Math.min(100, percentiles[i])) / 100 * recent.length);
+                results[i] = recent[Math.max(rank, 1) - 1];
+            }
+            return results;
+        }
+
+        @Override
+        public String toString() {
+            long[] p = this.getPercentileNanos(50, 95, 99, 100);
+            return String.format("%s: calls=%d total=%.1fms p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms",
+                    this.key, this.getCalls(), this.getTotalNanos() / 1e6,
+                    p[0] / 1e6, p[1] / 1e6, p[2] / 1e6, p[3] / 1e6);
+        }
+    }
+
+    /**
+     * A command run that took longer than the slow threshold.
+     */
+    public static final class SlowCommand {
+
+        private final String senderName;
+        private final String label;
+        private final String arguments;
+        private final long nanos;
+        private final long timestamp;
+
+        private SlowCommand(String senderName, String label, String arguments, long nanos) {
+            this.senderName = senderName;
+            this.label = label;
+            this.arguments = arguments;
+            this.nanos = nanos;
+            this.timestamp = System.currentTimeMillis();
+        }
+
+        public @NotNull String getSenderName() {
+            return senderName;
+        }
+
+        public @NotNull String getLabel() {
+            return label;
+        }
+
+        public @NotNull String getArguments() {
+            return arguments;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return When the command finished, in epoch milliseconds.
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s ran '/%s%s' in %.2fms",
+                    this.senderName,
+                    this.label,
+                    this.arguments.isEmpty() ? "" : " " + this.arguments,
+                    this.nanos / 1e6);
+        }
+    }
+}
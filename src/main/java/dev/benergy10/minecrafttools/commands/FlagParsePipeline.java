@@ -0,0 +1,188 @@
+package dev.benergy10.minecrafttools.commands;
+
+import co.aikar.commands.MessageKeys;
+import co.aikar.commands.MessageType;
+import dev.benergy10.minecrafttools.commands.flags.FlagGroup;
+import dev.benergy10.minecrafttools.commands.flags.FlagParseFailedException;
+import dev.benergy10.minecrafttools.commands.flags.FlagValues;
+import dev.benergy10.minecrafttools.utils.Logging;
+import dev.benergy10.minecrafttools.utils.MainThread;
+import dev.benergy10.minecrafttools.utils.WorkerThread;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.IllegalPluginAccessException;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * <p>Opt-in execution pipeline that moves flag parsing off the main thread, enabled with
+ * {@link CommandManager#enableFlagParsePipeline(int)}.</p>
+ *
+ * <p>Tokenizing, {@link FlagGroup#parse(String[])} and conversion of every value run on a worker pool. Only
+ * the command body is handed back to the main thread, on the next tick. Flag value conversions must therefore
+ * be thread safe.</p>
+ */
+public class FlagParsePipeline {
+
+    private final CommandManager commandManager;
+    private final ExecutorService workers;
+    private volatile boolean shutdown = false;
+
+    FlagParsePipeline(@NotNull CommandManager commandManager, int workerThreads) {
+        if (workerThreads <= 0) {
+            throw new IllegalArgumentException("Worker thread count must be positive!");
+        }
+        this.commandManager = commandManager;
+        String threadPrefix = commandManager.getPlugin().getName() + "-flag-worker-";
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, threadPrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Parse and convert all flag values on a worker thread. Safe to call from any thread, it only hands off
+     * the work.
+     *
+     * @param group The flags available to parse into.
+     * @param args  The arguments to parse, copied before handing off.
+     * @return A future of the fully converted {@link FlagValues}.
+     */
+    public @NotNull CompletableFuture<FlagValues> parse(@NotNull FlagGroup group, @NotNull String[] args) {
+        String[] argsCopy = args.clone();
+        return CompletableFuture.supplyAsync(() -> parseOnWorker(group, argsCopy), this.workers);
+    }
+
+    /**
+     * Tokenize a raw command line, then parse and convert all flag values on a worker thread. Safe to call
+     * from any thread, it only hands off the work.
+     *
+     * @param group     The flags available to parse into.
+     * @param line      The command line, copied before handing off.
+     * @param offset    Index in the line where flags start.
+     * @return A future of the fully converted {@link FlagValues}.
+     */
+    public @NotNull CompletableFuture<FlagValues> parse(@NotNull FlagGroup group,
+                                                        @NotNull CharSequence line,
+                                                        int offset) {
+
+        String lineCopy = line.toString();
+        return CompletableFuture.supplyAsync(() -> parseOnWorker(group, lineCopy, offset), this.workers);
+    }
+
+    @WorkerThread
+    private static FlagValues parseOnWorker(FlagGroup group, String[] args) {
+        return group.parse(args).validateAll();
+    }
+
+    @WorkerThread
+    private static FlagValues parseOnWorker(FlagGroup group, String line, int offset) {
+        return group.parse(line, offset).validateAll();
+    }
+
+    /**
+     * Parse flags on a worker thread, then run the command body with them on the main thread. Parse failures
+     * are sent to the sender as command errors, and the body is not run.
+     *
+     * @param sender    The command sender.
+     * @param group     The flags available to parse into.
+     * @param args      The arguments to parse.
+     * @param body      The command body.
+     */
+    public void execute(@NotNull CommandSender sender,
+                        @NotNull FlagGroup group,
+                        @NotNull String[] args,
+                        @MainThread @NotNull Consumer<FlagValues> body) {
+
+        this.handOff(sender, this.parse(group, args), body);
+    }
+
+    /**
+     * Parse flags of a raw command line on a worker thread, then run the command body with them on the main
+     * thread. Parse failures are sent to the sender as command errors, and the body is not run.
+     *
+     * @param sender    The command sender.
+     * @param group     The flags available to parse into.
+     * @param line      The command line.
+     * @param offset    Index in the line where flags start.
+     * @param body      The command body.
+     */
+    public void execute(@NotNull CommandSender sender,
+                        @NotNull FlagGroup group,
+                        @NotNull CharSequence line,
+                        int offset,
+                        @MainThread @NotNull Consumer<FlagValues> body) {
+
+        this.handOff(sender, this.parse(group, line, offset), body);
+    }
+
+    private void handOff(CommandSender sender, CompletableFuture<FlagValues> future, Consumer<FlagValues> body) {
+        future.whenComplete((values, throwable) -> {
+            if (this.shutdown) {
+                return;
+            }
+            try {
+                Bukkit.getScheduler().runTask(this.commandManager.getPlugin(), () -> {
+                    if (throwable == null) {
+                        this.runBody(body, values);
+                    } else {
+                        this.reportFailure(sender, throwable);
+                    }
+                });
+            } catch (IllegalPluginAccessException e) {
+                // Plugin disabled before shutdown() was called.
+                Logging.debug("Dropped flag parse result as plugin is disabled.");
+            }
+        });
+    }
+
+    @MainThread
+    private void runBody(Consumer<FlagValues> body, FlagValues values) {
+        try {
+            body.accept(values);
+        } catch (RuntimeException e) {
+            Logging.severe("An error occurred while running command body.");
+            e.printStackTrace();
+        }
+    }
+
+    @MainThread
+    private void reportFailure(CommandSender sender, Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+        if (cause instanceof FlagParseFailedException) {
+            this.commandManager.getCommandIssuer(sender)
+                    .sendMessage(MessageType.ERROR, MessageKeys.ERROR_PREFIX, "{message}", cause.getMessage());
+            return;
+        }
+        Logging.severe("An error occurred while parsing flags off the main thread.");
+        cause.printStackTrace();
+        this.commandManager.getCommandIssuer(sender).sendMessage(MessageType.ERROR, MessageKeys.ERROR_GENERIC_LOGGED);
+    }
+
+    /**
+     * Stop the worker pool, waiting briefly for running parses. Results not yet handed back are dropped.
+     */
+    void shutdown() {
+        this.shutdown = true;
+        this.workers.shutdown();
+        try {
+            if (!this.workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                this.workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            this.workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package dev.benergy10.minecrafttools.commands;
+
+import co.aikar.commands.RootCommand;
+import org.bukkit.Location;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.PluginIdentifiableCommand;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Wraps a registered command in the server command map, to rate limit and time its execution.
+ */
+final class ManagedCommand extends Command implements PluginIdentifiableCommand {
+
+    private final Command delegate;
+    private final CommandManager manager;
+
+    ManagedCommand(@NotNull Command delegate, @NotNull CommandManager manager) {
+        super(delegate.getName(), delegate.getDescription(), delegate.getUsage(), delegate.getAliases());
+        this.delegate = delegate;
+        this.manager = manager;
+        this.setPermission(delegate.getPermission());
+        this.setPermissionMessage(delegate.getPermissionMessage());
+    }
+
+    /**
+     * Keeps the command attributed to the plugin, as the wrapped ACF command is.
+     */
+    @Override
+    public @NotNull Plugin getPlugin() {
+        return this.manager.getPlugin();
+    }
+
+    @Override
+    public boolean execute(@NotNull CommandSender sender, @NotNull String commandLabel, @NotNull String[] args) {
+        CommandRateLimiter rateLimiter = this.manager.getRateLimiter();
+        CommandTimings timings = this.manager.getCommandTimings();
+        boolean timed = timings != null && timings.isEnabled();
+        if (rateLimiter == null && !timed) {
+            return this.delegate.execute(sender, commandLabel, args);
+        }
+
+        String key = this.getCommandKey(args);
+        if (rateLimiter != null && !rateLimiter.tryAcquire(sender, this.delegate.getName(), key, args)) {
+            return true;
+        }
+        if (!timed) {
+            return this.delegate.execute(sender, commandLabel, args);
+        }
+        long start = System.nanoTime();
+        try {
+            return this.delegate.execute(sender, commandLabel, args);
+        } finally {
+            timings.record(key, sender, commandLabel, args, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Commands are keyed by name, or by name and subcommand when the first one or two arguments are one.
+     */
+    private String getCommandKey(String[] args) {
+        String name = this.delegate.getName().toLowerCase();
+        if (!(this.delegate instanceof RootCommand) || args.length == 0) {
+            return name;
+        }
+        Set<String> subCommands = ((RootCommand) this.delegate).getSubCommands().keySet();
+        if (args.length >= 2) {
+            String subCommand = (args[0] + " " + args[1]).toLowerCase();
+            if (subCommands.contains(subCommand)) {
+                return name + " " + subCommand;
+            }
+        }
+        String subCommand = args[0].toLowerCase();
+        return subCommands.contains(subCommand) ? name + " " + subCommand : name;
+    }
+
+    @Override
+    public @NotNull List<String> tabComplete(@NotNull CommandSender sender,
+                                             @NotNull String alias,
+                                             @NotNull String[] args) {
+
+        return this.delegate.tabComplete(sender, alias, args);
+    }
+
+    @Override
+    public @NotNull List<String> tabComplete(@NotNull CommandSender sender,
+                                             @NotNull String alias,
+                                             @NotNull String[] args,
+                                             @Nullable Location location) {
+
+        return this.delegate.tabComplete(sender, alias, args, location);
+    }
+
+    @Override
+    public boolean testPermission(@NotNull CommandSender target) {
+        return this.delegate.testPermission(target);
+    }
+
+    @Override
+    public boolean testPermissionSilent(@NotNull CommandSender target) {
+        return this.delegate.testPermissionSilent(target);
+    }
+
+    @NotNull Command getDelegate() {
+        return this.delegate;
+    }
+
+    @NotNull CommandManager getManager() {
+        return this.manager;
+    }
+}
@@ -0,0 +1,66 @@
+package dev.benergy10.minecrafttools.commands.flags;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Required value flag of a {@code double}, which {@link FlagValues} stores without boxing.
+ * Read it with {@link FlagValues#getDouble(Flag)}.
+ */
+public abstract class DoubleFlag extends RequiredValueFlag<Double> implements PrimitiveFlag<Double> {
+
+    /**
+     * @param name          Readable name for the flag.
+     * @param identifier    Unique key to identify the flag in command arguments.
+     */
+    public DoubleFlag(String name, String identifier) {
+        super(name, identifier, Double.class);
+    }
+
+    /**
+     * Parse a user input to a {@code double}.
+     *
+     * @param input The string to parse.
+     * @return The {@code double} value.
+     */
+    public abstract double getDoubleValue(@NotNull String input);
+
+    /**
+     * When this Command Flag is not present in command input.
+     *
+     * @return The {@code double} value.
+     */
+    public double getDefaultDoubleValue() {
+        return 0;
+    }
+
+    /**
+     * Boxed version of {@link #getDoubleValue(String)}.
+     */
+    @Override
+    public final Double getValue(@NotNull String input) {
+        return this.getDoubleValue(input);
+    }
+
+    /**
+     * Boxed version of {@link #getDefaultDoubleValue()}.
+     */
+    @Override
+    public final Double getDefaultValue() {
+        return this.getDefaultDoubleValue();
+    }
+
+    @Override
+    public final @NotNull PrimitiveKind<Double> getPrimitiveKind() {
+        return PrimitiveKind.DOUBLE;
+    }
+
+    @Override
+    public final long getValueBits(@NotNull String input) {
+        return Double.doubleToRawLongBits(this.getDoubleValue(input));
+    }
+
+    @Override
+    public final long getDefaultValueBits() {
+        return Double.doubleToRawLongBits(this.getDefaultDoubleValue());
+    }
+}
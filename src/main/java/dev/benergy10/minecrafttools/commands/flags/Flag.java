@@ -1,6 +1,7 @@
 package dev.benergy10.minecrafttools.commands.flags;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -25,6 +26,9 @@ public abstract class Flag<T> {
     protected final String identifier;
     protected final Class<T> type;
     protected final Collection<String> aliases;
+    protected boolean staticSuggestions = false;
+    protected boolean deterministic = false;
+    protected SuggestionProvider suggestionProvider;
 
     /**
      * @param name          Readable name for the flag.
@@ -92,6 +96,67 @@ public abstract class Flag<T> {
         return this;
     }
 
+    /**
+     * Marks the values from {@link #suggestValue()} as never changing, so they can be cached forever.
+     *
+     * @return A {@link Flag}.
+     */
+    public Flag<T> staticSuggestions() {
+        this.staticSuggestions = true;
+        return this;
+    }
+
+    /**
+     * Gets if the values from {@link #suggestValue()} never change.
+     *
+     * @return True if suggestions are static, else false.
+     */
+    public boolean hasStaticSuggestions() {
+        return this.staticSuggestions;
+    }
+
+    /**
+     * Suggest values from a {@link SuggestionProvider} instead of {@link #suggestValue()}, so completion
+     * never waits on loading them. Ignored if suggestions are static.
+     *
+     * @param suggestionProvider    The provider of value suggestions.
+     * @return A {@link Flag}.
+     */
+    public Flag<T> suggestionProvider(@NotNull SuggestionProvider suggestionProvider) {
+        this.suggestionProvider = suggestionProvider;
+        return this;
+    }
+
+    /**
+     * Gets the provider of value suggestions for this Command Flag, if any.
+     *
+     * @return The {@link SuggestionProvider} if set, else null.
+     */
+    @Nullable
+    public SuggestionProvider getSuggestionProvider() {
+        return this.suggestionProvider;
+    }
+
+    /**
+     * Marks the value conversion of this Command Flag as deterministic and free of side effects, i.e. the same
+     * input always gives an equal value that is safe to share. This allows parse results to be cached.
+     *
+     * @return A {@link Flag}.
+     */
+    public Flag<T> deterministic() {
+        this.deterministic = true;
+        return this;
+    }
+
+    /**
+     * Gets if the value conversion of this Command Flag is deterministic and free of side effects.
+     *
+     * @return True if deterministic, else false.
+     */
+    public boolean isDeterministic() {
+        return this.deterministic;
+    }
+
     /**
      * Tab-complete suggestion for this Command Flag values.
      *
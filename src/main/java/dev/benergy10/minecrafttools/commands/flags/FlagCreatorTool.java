@@ -28,7 +28,7 @@ public class FlagCreatorTool {
         }
 
         public Flag<Boolean> create() {
-            return new NoValueFlag<Boolean>(name, identifier, Boolean.class) {
+            Flag<Boolean> flag = new NoValueFlag<Boolean>(name, identifier, Boolean.class) {
                 @Override
                 public Boolean getValue() {
                     return presentValue;
@@ -39,6 +39,7 @@ public class FlagCreatorTool {
                     return !presentValue;
                 }
             };
+            return flag.deterministic();
         }
     }
 
@@ -76,7 +77,7 @@ public class FlagCreatorTool {
 
         public Flag<T> create() {
             Objects.requireNonNull(parser);
-            return new RequiredValueFlag<T>(name, identifier, numberClass) {
+            Flag<T> flag = new RequiredValueFlag<T>(name, identifier, numberClass) {
                 @Override
                 public Collection<String> suggestValue() {
                     return IntStream.range(1, 21).boxed().map(Object::toString).collect(Collectors.toList());
@@ -101,6 +102,7 @@ public class FlagCreatorTool {
                     return defaultValue;
                 }
             };
+            return flag.staticSuggestions().deterministic();
         }
 
         private boolean isInRange(T num) {
@@ -114,4 +116,165 @@ public class FlagCreatorTool {
         }
 
     }
+
+    /**
+     * Creates flags of an {@code int}, {@code long} or {@code double} that {@link FlagValues} stores without
+     * boxing, e.g. {@code new PrimitiveCreator<>("Radius", "-r", PrimitiveKind.INT, Integer::parseInt)}.
+     * Flags require a value, unless a {@link #presentValue(Number)} is given for when the key is used alone.
+     *
+     * @param <T>   The boxed type of the value.
+     */
+    public static class PrimitiveCreator<T extends Number & Comparable<T>> {
+
+        private final String name;
+        private final String identifier;
+        private final PrimitiveKind<T> kind;
+        private final Function<String, T> parser;
+        private T defaultValue;
+        private T presentValue;
+        private T min;
+        private T max;
+
+        public PrimitiveCreator(String name, String identifier, PrimitiveKind<T> kind, Function<String, T> parser) {
+            this.name = name;
+            this.identifier = identifier;
+            this.kind = Objects.requireNonNull(kind);
+            this.parser = Objects.requireNonNull(parser);
+            this.defaultValue = kind.fromBits(0L);
+        }
+
+        public PrimitiveCreator<T> defaultValue(T defaultValue) {
+            this.defaultValue = Objects.requireNonNull(defaultValue);
+            return this;
+        }
+
+        /**
+         * Value when the key is used without a value, which makes the flag an {@link OptionalValueFlag}.
+         */
+        public PrimitiveCreator<T> presentValue(T presentValue) {
+            this.presentValue = Objects.requireNonNull(presentValue);
+            return this;
+        }
+
+        public PrimitiveCreator<T> range(T min, T max) {
+            this.min = min;
+            this.max = max;
+            return this;
+        }
+
+        public Flag<T> create() {
+            Flag<T> flag = this.presentValue == null
+                    ? new RequiredPrimitiveFlag<>(this)
+                    : new OptionalPrimitiveFlag<>(this);
+            return flag.staticSuggestions().deterministic();
+        }
+
+        private Collection<String> suggestValue() {
+            return IntStream.range(1, 21).boxed().map(Object::toString).collect(Collectors.toList());
+        }
+
+        private T parse(String input) {
+            T num;
+            try {
+                num = this.parser.apply(input);
+            } catch (NumberFormatException e) {
+                throw new FlagParseFailedException("%s is not a number!", input);
+            }
+            if (num instanceof Double && ((Double) num).isNaN()) {
+                throw new FlagParseFailedException("%s is not a number!", input);
+            }
+            if ((this.min != null && num.compareTo(this.min) < 0)
+                    || (this.max != null && num.compareTo(this.max) > 0)) {
+                throw new FlagParseFailedException("%s is not in valid range!", input);
+            }
+            return num;
+        }
+    }
+
+    private static final class RequiredPrimitiveFlag<T extends Number & Comparable<T>>
+            extends RequiredValueFlag<T> implements PrimitiveFlag<T> {
+
+        private final PrimitiveCreator<T> creator;
+
+        private RequiredPrimitiveFlag(PrimitiveCreator<T> creator) {
+            super(creator.name, creator.identifier, creator.kind.getType());
+            this.creator = creator;
+        }
+
+        @Override
+        public Collection<String> suggestValue() {
+            return this.creator.suggestValue();
+        }
+
+        @Override
+        public T getValue(@NotNull String input) {
+            return this.creator.parse(input);
+        }
+
+        @Override
+        public T getDefaultValue() {
+            return this.creator.defaultValue;
+        }
+
+        @Override
+        public @NotNull PrimitiveKind<T> getPrimitiveKind() {
+            return this.creator.kind;
+        }
+
+        @Override
+        public long getValueBits(@NotNull String input) {
+            return this.creator.kind.toBits(this.creator.parse(input));
+        }
+
+        @Override
+        public long getDefaultValueBits() {
+            return this.creator.kind.toBits(this.creator.defaultValue);
+        }
+    }
+
+    private static final class OptionalPrimitiveFlag<T extends Number & Comparable<T>>
+            extends OptionalValueFlag<T> implements PrimitiveFlag<T> {
+
+        private final PrimitiveCreator<T> creator;
+
+        private OptionalPrimitiveFlag(PrimitiveCreator<T> creator) {
+            super(creator.name, creator.identifier, creator.kind.getType());
+            this.creator = creator;
+        }
+
+        @Override
+        public Collection<String> suggestValue() {
+            return this.creator.suggestValue();
+        }
+
+        @Override
+        public T getValue() {
+            return this.creator.presentValue;
+        }
+
+        @Override
+        public T getValue(@NotNull String input) {
+            return this.creator.parse(input);
+        }
+
+        @Override
+        public T getDefaultValue() {
+            return this.creator.defaultValue;
+        }
+
+        @Override
+        public @NotNull PrimitiveKind<T> getPrimitiveKind() {
+            return this.creator.kind;
+        }
+
+        @Override
+        public long getValueBits(@NotNull String input) {
+            return this.creator.kind.toBits(this.creator.parse(input));
+        }
+
+        @Override
+        public long getDefaultValueBits() {
+            return this.creator.kind.toBits(this.creator.defaultValue);
+        }
+    }
 }
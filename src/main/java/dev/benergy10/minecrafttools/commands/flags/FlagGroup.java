@@ -1,14 +1,19 @@
 package dev.benergy10.minecrafttools.commands.flags;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -36,90 +41,416 @@ public class FlagGroup {
 
     private final List<String> identifiers;
     private final Set<Flag<?>> flags;
-    private final Map<String, Flag<?>> keyMap;
+    private final Flag<?>[] flagsByOrdinal;
+    private final Map<Flag<?>, Integer> ordinals;
+    private final KeyIndex<Flag<?>> keyIndex;
+    private final SuggestionTable keyTable;
+    private final SuggestionTable[] staticValueTables;
+    private final FlagMetrics metrics = new FlagMetrics();
+    private volatile Cache<List<String>, FlagValues> parseCache;
 
     /**
      * Create a new Flag Group with multiple {@link Flag}.
+     * Identifiers and aliases are indexed at this point, so aliases added to a flag afterwards are not picked up.
+     * Each flag is given a dense ordinal in the order they are passed in. Value suggestions of flags with
+     * {@link Flag#hasStaticSuggestions()} are also taken once here.
      *
      * @param flags Array of flags
      */
     public FlagGroup(Collection<Flag<?>> flags) {
         this.identifiers = new ArrayList<>(flags.size());
-        this.flags = new HashSet<>(flags);
-        this.keyMap = new HashMap<>();
-        this.flags.forEach(this::addFlag);
+        this.flags = Collections.unmodifiableSet(new LinkedHashSet<>(flags));
+        this.flagsByOrdinal = this.flags.toArray(new Flag<?>[0]);
+        this.ordinals = new IdentityHashMap<>(this.flagsByOrdinal.length);
+        this.staticValueTables = new SuggestionTable[this.flagsByOrdinal.length];
+        Map<String, Flag<?>> keyMap = new LinkedHashMap<>();
+        SuggestionTable.Builder keyTableBuilder = new SuggestionTable.Builder(this.flagsByOrdinal.length);
+        for (int ordinal = 0; ordinal < this.flagsByOrdinal.length; ordinal++) {
+            Flag<?> flag = this.flagsByOrdinal[ordinal];
+            this.ordinals.put(flag, ordinal);
+            this.addFlag(flag, ordinal, keyMap, keyTableBuilder);
+        }
+        this.keyIndex = new KeyIndex<>(keyMap);
+        this.keyTable = keyTableBuilder.build();
     }
 
     /**
-     * Add and indexes a flag.
+     * Add a flag and collect its keys for indexing.
      *
-     * @param flag  The flag to add.
+     * @param flag              The flag to add.
+     * @param ordinal           Ordinal of the flag.
+     * @param keyMap            The keys collected so far.
+     * @param keyTableBuilder   The key suggestions collected so far.
      */
-    private void addFlag(Flag<?> flag) {
+    private void addFlag(Flag<?> flag,
+                         int ordinal,
+                         Map<String, Flag<?>> keyMap,
+                         SuggestionTable.Builder keyTableBuilder) {
+
         String id = flag.getIdentifier().toLowerCase();
         this.identifiers.add(id);
-        this.keyMap.put(id, flag);
+        keyMap.put(id, flag);
+        keyTableBuilder.add(id, null, ordinal);
         for (String flagAlias : flag.getAliases()) {
-            this.keyMap.put(flagAlias, flag);
+            String alias = flagAlias.toLowerCase();
+            keyMap.put(alias, flag);
+            keyTableBuilder.add(alias, id, ordinal);
+        }
+        if (flag.hasStaticSuggestions()) {
+            this.staticValueTables[ordinal] = SuggestionTable.of(flag.suggestValue());
         }
     }
 
     /**
-     * Suggest possible identifiers available for this Flag Group.
+     * Suggest possible identifiers and values available for this Flag Group, that start with the partially
+     * typed last argument.
      *
      * @param args  Current state of the arguments.
-     * @return A collection of suggested text for the next flag argument.
+     * @return An unmodifiable collection of suggested text for the next flag argument.
      */
     @NotNull
     public Collection<String> suggestNextArgument(String[] args) {
-        Flag<?> flag = (args.length <= 1) ? null : this.getByKey(args[args.length - 2]);
+        boolean timed = FlagMetrics.isEnabled();
+        long start = timed ? System.nanoTime() : 0L;
+        Flag<?> flag = this.getSuggestingFlag(args);
+        Collection<String> suggestions = this.suggestFor(flag, this.getUsedFlags(args), getTypedPrefix(args),
+                this.getValueTable(flag));
+        if (timed) {
+            this.metrics.recordCompletion(System.nanoTime() - start);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Gets the flag whose value is being typed, i.e. the flag key before the last argument.
+     *
+     * @param args  Current state of the arguments.
+     * @return The {@link Flag} if found, else null.
+     */
+    @Nullable
+    Flag<?> getSuggestingFlag(String[] args) {
+        return (args.length <= 1) ? null : this.getByKey(args[args.length - 2]);
+    }
+
+    /**
+     * Gets the ordinals of flags already used, ignoring the last argument which is still being typed.
+     *
+     * @param args  Current state of the arguments.
+     * @return Set bits for every used flag ordinal.
+     */
+    @NotNull
+    BitSet getUsedFlags(String[] args) {
+        BitSet used = new BitSet(this.size());
+        for (int i = 0; i < args.length - 1; i++) {
+            Flag<?> flag = this.getByKey(args[i]);
+            if (flag != null) {
+                used.set(this.indexOf(flag));
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Gets the last argument, which is still being typed.
+     *
+     * @param args  Current state of the arguments.
+     * @return The partial argument, empty if none.
+     */
+    @NotNull
+    static String getTypedPrefix(String[] args) {
+        if (args.length == 0 || args[args.length - 1] == null) {
+            return "";
+        }
+        return args[args.length - 1];
+    }
+
+    /**
+     * Gets the static value suggestion table of a flag, if it has one.
+     *
+     * @param flag  The target flag.
+     * @return The pre-built {@link SuggestionTable} if flag has static suggestions, else null.
+     */
+    @Nullable
+    SuggestionTable getStaticValueTable(@Nullable Flag<?> flag) {
+        if (flag == null) {
+            return null;
+        }
+        int ordinal = this.indexOf(flag);
+        return ordinal < 0 ? null : this.staticValueTables[ordinal];
+    }
+
+    /**
+     * Gets the value suggestion table of a flag. Static tables come first, then the flag's
+     * {@link SuggestionProvider}, else one is built from {@link Flag#suggestValue()}.
+     *
+     * @param flag  The target flag.
+     * @return The {@link SuggestionTable} of values.
+     */
+    @NotNull
+    SuggestionTable getValueTable(@Nullable Flag<?> flag) {
         if (flag == null || flag instanceof NoValueFlag) {
-            // suggest new flags.
-            return getRemainingFlagIdentifiers(args);
+            return SuggestionTable.EMPTY;
         }
-        Collection<String> suggestions = flag.suggestValue();
-        if (flag instanceof OptionalValueFlag) {
-            // suggest new flags and values.
-            suggestions.addAll(getRemainingFlagIdentifiers(args));
-            return suggestions;
+        SuggestionTable table = this.getStaticValueTable(flag);
+        if (table != null) {
+            return table;
         }
-        // suggest new values.
-        return suggestions == null ? Collections.emptySet() : suggestions;
+        SuggestionProvider provider = flag.getSuggestionProvider();
+        return provider != null ? provider.getTable() : SuggestionTable.of(flag.suggestValue());
     }
 
-    private Collection<String> getRemainingFlagIdentifiers(String[] args) {
-        Set<String> identifiersRemaining = new HashSet<>(this.identifiers);
-        identifiersRemaining.removeAll(Arrays.asList(args));
-        return identifiersRemaining;
+    /**
+     * Suggest the next argument from an already normalised argument state.
+     *
+     * @param flag          The flag whose value is being typed, if any.
+     * @param used          Ordinals of flags already used.
+     * @param prefix        The partially typed last argument.
+     * @param valueTable    Value suggestions of the flag.
+     * @return An unmodifiable collection of suggested text for the next flag argument.
+     */
+    @NotNull
+    Collection<String> suggestFor(@Nullable Flag<?> flag,
+                                  @NotNull BitSet used,
+                                  @NotNull String prefix,
+                                  @NotNull SuggestionTable valueTable) {
+
+        if (flag == null || flag instanceof NoValueFlag) {
+            // suggest new flags.
+            return this.keyTable.matching(prefix, used);
+        }
+        List<String> values = valueTable.matching(prefix);
+        if (!(flag instanceof OptionalValueFlag)) {
+            // suggest new values.
+            return values;
+        }
+        // suggest new flags and values.
+        List<String> keys = this.keyTable.matching(prefix, used);
+        if (values.isEmpty() || keys.isEmpty()) {
+            return values.isEmpty() ? keys : values;
+        }
+        List<String> suggestions = new ArrayList<>(values.size() + keys.size());
+        suggestions.addAll(values);
+        suggestions.addAll(keys);
+        return Collections.unmodifiableList(suggestions);
     }
 
     /**
      * Parse the arguments to get it's flag values.
+     * The result may be shared from the parse cache, see {@link #enableParseCache(long)}.
      *
      * @param args  The arguments to parse.
      * @return A {@link FlagValues} containing value results.
      */
     @NotNull
     public FlagValues parse(String[] args) throws FlagParseFailedException {
-        return FlagValues.parse(args,this);
+        Cache<List<String>, FlagValues> cache = this.parseCache;
+        if (cache == null || args == null) {
+            return FlagValues.parse(args,this);
+        }
+        FlagValues cached = cache.getIfPresent(Arrays.asList(args));
+        if (cached != null) {
+            return cached;
+        }
+        FlagValues values = FlagValues.parse(args, this);
+        if (values.isShareable()) {
+            cache.put(Collections.unmodifiableList(Arrays.asList(args.clone())), values);
+        }
+        return values;
     }
 
     /**
-     * Gets flag from pre-indexed key mapping.
+     * Parse the arguments to get it's flag values, returning a failed result instead of throwing on invalid
+     * input. The values may be shared from the parse cache, like {@link #parse(String[])}.
+     *
+     * @param args  The arguments to parse.
+     * @return A {@link FlagParseResult} containing value results or the failure.
+     */
+    @NotNull
+    public FlagParseResult tryParse(String[] args) {
+        Cache<List<String>, FlagValues> cache = this.parseCache;
+        if (cache == null || args == null) {
+            return FlagValues.tryParse(args, this);
+        }
+        FlagValues cached = cache.getIfPresent(Arrays.asList(args));
+        if (cached != null) {
+            return FlagParseResult.success(cached);
+        }
+        FlagParseResult result = FlagValues.tryParse(args, this);
+        if (result.isSuccess() && result.getValues().isShareable()) {
+            cache.put(Collections.unmodifiableList(Arrays.asList(args.clone())), result.getValues());
+        }
+        return result;
+    }
+
+    /**
+     * Parse a raw command line to get it's flag values, returning a failed result instead of throwing on
+     * invalid input.
+     *
+     * @param line      The command line to parse.
+     * @param offset    Index in the line where flags start.
+     * @return A {@link FlagParseResult} containing value results or the failure.
+     */
+    @NotNull
+    public FlagParseResult tryParse(CharSequence line, int offset) {
+        return FlagValues.tryParse(line, offset, this);
+    }
+
+    /**
+     * <p>Enable caching of {@link #parse(String[])} results, keyed by argument content.</p>
+     *
+     * <p>Only results where every flag from input is {@link Flag#isDeterministic()} are cached, and the same
+     * {@link FlagValues} instance is then returned for equal arguments. Failed parses are never cached.
+     * Least recently used results are evicted once the cache is full.</p>
+     *
+     * @param maximumSize   Maximum number of results to keep.
+     * @return This {@link FlagGroup}.
+     */
+    @NotNull
+    public FlagGroup enableParseCache(long maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Parse cache size must be positive!");
+        }
+        this.parseCache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        return this;
+    }
+
+    /**
+     * Disable and clear the parse result cache.
+     */
+    public void disableParseCache() {
+        this.parseCache = null;
+    }
+
+    /**
+     * Clear all cached parse results, keeping the cache enabled.
+     */
+    public void invalidateParseCache() {
+        Cache<List<String>, FlagValues> cache = this.parseCache;
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Gets the hit, miss and eviction stats of the parse result cache.
+     *
+     * @return The {@link CacheStats} if cache is enabled, else null.
+     */
+    @Nullable
+    public CacheStats getParseCacheStats() {
+        Cache<List<String>, FlagValues> cache = this.parseCache;
+        return cache == null ? null : cache.stats();
+    }
+
+    /**
+     * Parse the arguments to get it's flag values, converting each value only when it is first read.
+     *
+     * @param args  The arguments to parse.
+     * @return A {@link FlagValues} containing value results.
+     */
+    @NotNull
+    public FlagValues parseLazily(String[] args) throws FlagParseFailedException {
+        return FlagValues.parseLazily(args, this);
+    }
+
+    /**
+     * Parse a raw command line to get it's flag values, splitting tokens in place without copying the line.
+     *
+     * @param line      The command line to parse.
+     * @param offset    Index in the line where flags start.
+     * @return A {@link FlagValues} containing value results.
+     */
+    @NotNull
+    public FlagValues parse(CharSequence line, int offset) throws FlagParseFailedException {
+        return FlagValues.parse(line, offset, this);
+    }
+
+    /**
+     * Parse a raw command line to get it's flag values, converting each value only when it is first read.
+     * Only values that are read are ever copied out of the line.
+     *
+     * @param line      The command line to parse, which must not change afterwards.
+     * @param offset    Index in the line where flags start.
+     * @return A {@link FlagValues} containing value results.
+     */
+    @NotNull
+    public FlagValues parseLazily(CharSequence line, int offset) throws FlagParseFailedException {
+        return FlagValues.parseLazily(line, offset, this);
+    }
+
+    /**
+     * Gets flag from pre-indexed key mapping. Keys are matched ignoring case, without allocating.
      *
      * @param key   The target key.
      * @return A {@link Flag} if found, else null.
      */
     @Nullable
-    public Flag<?> getByKey(@Nullable String key) {
+    public Flag<?> getByKey(@Nullable CharSequence key) {
         if (key == null) {
             return null;
         }
-        return this.keyMap.get(key.toLowerCase());
+        return this.keyIndex.get(key);
+    }
+
+    /**
+     * Gets flag from pre-indexed key mapping, where the key is a region of a larger char sequence.
+     *
+     * @param source    The sequence containing the key.
+     * @param start     Start index of the key, inclusive.
+     * @param end       End index of the key, exclusive.
+     * @return A {@link Flag} if found, else null.
+     */
+    @Nullable
+    public Flag<?> getByKey(@NotNull CharSequence source, int start, int end) {
+        return this.keyIndex.get(source, start, end);
+    }
+
+    /**
+     * Gets the dense ordinal of a flag in this group, ranging from 0 to {@link #size()} exclusive.
+     *
+     * @param flag  The target flag.
+     * @return The ordinal if flag is in this group, else -1.
+     */
+    public int indexOf(@NotNull Flag<?> flag) {
+        Integer ordinal = this.ordinals.get(flag);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Gets flag by its ordinal in this group.
+     *
+     * @param ordinal   The target ordinal.
+     * @return The {@link Flag} at that ordinal.
+     */
+    @NotNull
+    public Flag<?> getFlag(int ordinal) {
+        return this.flagsByOrdinal[ordinal];
+    }
+
+    /**
+     * Gets the number of flags in this group.
+     *
+     * @return The flag count.
+     */
+    public int size() {
+        return this.flagsByOrdinal.length;
+    }
+
+    /**
+     * Gets the parse and completion metrics of this group. Only recorded when {@link FlagMetrics#isEnabled()}.
+     *
+     * @return The {@link FlagMetrics}.
+     */
+    @NotNull
+    public FlagMetrics getMetrics() {
+        return this.metrics;
     }
 
     public boolean containsFlag(Flag<?> flag) {
-        return this.flags.contains(flag);
+        return this.ordinals.containsKey(flag);
     }
 
     public Set<Flag<?>> getFlags() {
@@ -135,7 +466,8 @@ public class FlagGroup {
         return "FlagGroup{" +
                 "identifiers=" + identifiers +
                 ", flags=" + flags +
-                ", keyMap=" + keyMap +
+                ", keys=" + keyIndex.size() +
+                ", parseCache=" + (parseCache != null) +
                 '}';
     }
 }
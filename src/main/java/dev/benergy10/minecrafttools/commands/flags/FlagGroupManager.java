@@ -3,56 +3,191 @@ package dev.benergy10.minecrafttools.commands.flags;
 import co.aikar.commands.BukkitCommandCompletionContext;
 import dev.benergy10.minecrafttools.commands.CommandManager;
 import dev.benergy10.minecrafttools.utils.Logging;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public class FlagGroupManager {
 
     private final CommandManager manager;
-    private final Map<String, FlagGroup> flagGroupMap;
+    private volatile Registry registry;
+    private volatile FlagSuggestionCache suggestionCache;
+    private final LongAdder unknownGroupCompletions = new LongAdder();
+    private final LongAdder supersededCompletions = new LongAdder();
+    private final Map<UUID, AtomicLong> completionGenerations = new ConcurrentHashMap<>();
 
     public FlagGroupManager(CommandManager manager) {
         this.manager = manager;
-        this.flagGroupMap = new HashMap<>();
+        this.registry = new Registry(Collections.emptyMap());
+        this.suggestionCache = new FlagSuggestionCache();
         this.manager.getCommandCompletions().registerAsyncCompletion("flags", this::suggestFlags);
+        // Completion generations are kept per sender while online, so a newer request can always see them.
+        Bukkit.getPluginManager().registerEvent(
+                PlayerQuitEvent.class,
+                new Listener() { },
+                EventPriority.MONITOR,
+                (listener, event) -> {
+                    if (event instanceof PlayerQuitEvent) {
+                        this.completionGenerations.remove(((PlayerQuitEvent) event).getPlayer().getUniqueId());
+                    }
+                },
+                manager.getPlugin(),
+                false
+        );
     }
 
     private @NotNull Collection<String> suggestFlags(BukkitCommandCompletionContext context) {
         String groupName = context.getConfig();
         FlagGroup flagGroup = this.getGroup(groupName);
         if (flagGroup == null) {
+            this.unknownGroupCompletions.increment();
             Logging.warning("No flag group with name found: " + groupName);
             return Collections.emptyList();
         }
         String[] args = context.getContextValue(String[].class);
-        return flagGroup.suggestNextArgument(args);
+        UUID senderId = context.getIssuer().getUniqueId();
+
+        // Each new request from a sender supersedes the older ones still running.
+        AtomicLong generation = this.completionGenerations.computeIfAbsent(senderId, k -> new AtomicLong());
+        long requestGeneration = generation.incrementAndGet();
+        Collection<String> suggestions = this.suggestionCache.suggest(flagGroup, args,
+                () -> generation.get() != requestGeneration);
+        if (generation.get() != requestGeneration) {
+            this.supersededCompletions.increment();
+            return Collections.emptyList();
+        }
+        return suggestions;
     }
 
-    public void addNewGroup(String name, FlagGroup group) {
+    /**
+     * Registers a flag group. Registration is copy-on-write, so tab-completion running on other threads
+     * never waits on it, and always sees either the old or the new set of groups.
+     *
+     * @param name  Name of the group, ignoring case.
+     * @param group The group to register.
+     */
+    public synchronized void addNewGroup(String name, FlagGroup group) {
         String trimmedName = name.toLowerCase();
-        if (this.flagGroupMap.containsKey(trimmedName)) {
+        Registry current = this.registry;
+        if (current.index.get(trimmedName) != null) {
             throw new IllegalArgumentException("Duplicate flag group name: " + trimmedName);
         }
-        this.flagGroupMap.put(trimmedName, group);
+        Map<String, FlagGroup> groups = new LinkedHashMap<>(current.groups);
+        groups.put(trimmedName, group);
+        this.registry = new Registry(groups);
     }
 
+    /**
+     * Gets a registered flag group, without locking or allocating.
+     *
+     * @param name  Name of the group, ignoring case.
+     * @return The {@link FlagGroup} if found, else null.
+     */
     public FlagGroup getGroup(String name) {
-        return this.flagGroupMap.get(name.toLowerCase());
+        return this.registry.index.get(name);
     }
 
     public Collection<FlagGroup> getGroups() {
-        return this.flagGroupMap.values();
+        return this.registry.groups.values();
     }
 
     public Collection<String> getGroupNames() {
-        return this.flagGroupMap.keySet();
+        return this.registry.groups.keySet();
+    }
+
+    /**
+     * Gets the cache used for flag tab-completion.
+     *
+     * @return The {@link FlagSuggestionCache}.
+     */
+    @NotNull
+    public FlagSuggestionCache getSuggestionCache() {
+        return this.suggestionCache;
+    }
+
+    /**
+     * Replace the cache used for flag tab-completion, e.g. to change its size or TTL.
+     *
+     * @param suggestionCache   The new cache.
+     */
+    public void setSuggestionCache(@NotNull FlagSuggestionCache suggestionCache) {
+        this.suggestionCache = suggestionCache;
+    }
+
+    /**
+     * Gets the number of completions requested for group names that are not registered.
+     *
+     * @return The completion count.
+     */
+    public long getUnknownGroupCompletions() {
+        return this.unknownGroupCompletions.sum();
+    }
+
+    /**
+     * Gets the number of completions dropped because a newer one from the same sender arrived.
+     *
+     * @return The completion count.
+     */
+    public long getSupersededCompletions() {
+        return this.supersededCompletions.sum();
+    }
+
+    /**
+     * Gets the metrics of every registered group in readable form, one line per group.
+     *
+     * @return The metric lines.
+     */
+    @NotNull
+    public List<String> dumpMetrics() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("Flag metrics are %s. Completions for unknown groups: %d, superseded: %d",
+                FlagMetrics.isEnabled() ? "enabled" : "disabled",
+                this.getUnknownGroupCompletions(),
+                this.getSupersededCompletions()));
+        for (Map.Entry<String, FlagGroup> entry : this.registry.groups.entrySet()) {
+            lines.add(entry.getKey() + ": " + entry.getValue().getMetrics());
+        }
+        return lines;
+    }
+
+    /**
+     * Clears the metrics of every registered group.
+     */
+    public void resetMetrics() {
+        this.unknownGroupCompletions.reset();
+        this.supersededCompletions.reset();
+        for (FlagGroup group : this.registry.groups.values()) {
+            group.getMetrics().reset();
+        }
     }
 
     public CommandManager getManager() {
         return manager;
     }
+
+    /**
+     * Immutable snapshot of registered groups.
+     */
+    private static final class Registry {
+        private final Map<String, FlagGroup> groups;
+        private final KeyIndex<FlagGroup> index;
+
+        private Registry(Map<String, FlagGroup> groups) {
+            this.groups = Collections.unmodifiableMap(groups);
+            this.index = new KeyIndex<>(groups);
+        }
+    }
 }
@@ -0,0 +1,126 @@
+package dev.benergy10.minecrafttools.commands.flags;
+
+import dev.benergy10.minecrafttools.utils.LatencyHistogram;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Parse and completion counters and latencies of a {@link FlagGroup}.</p>
+ *
+ * <p>Recording is off by default, and is toggled for all groups with {@link #setEnabled(boolean)}. When off,
+ * the only cost is a check of a volatile flag. Counters are striped, so async completion threads do not
+ * contend with each other.</p>
+ */
+public final class FlagMetrics {
+
+    private static volatile boolean enabled = false;
+
+    public static void setEnabled(boolean state) {
+        enabled = state;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    private final LongAdder parseCalls;
+    private final LongAdder[] parseFailures;
+    private final LongAdder completionCalls;
+    private final LatencyHistogram parseLatency;
+    private final LatencyHistogram completionLatency;
+
+    FlagMetrics() {
+        this.parseCalls = new LongAdder();
+        this.parseFailures = new LongAdder[FlagParseError.values().length];
+        for (int i = 0; i < this.parseFailures.length; i++) {
+            this.parseFailures[i] = new LongAdder();
+        }
+        this.completionCalls = new LongAdder();
+        this.parseLatency = new LatencyHistogram();
+        this.completionLatency = new LatencyHistogram();
+    }
+
+    void recordParse(long nanos) {
+        this.parseCalls.increment();
+        this.parseLatency.record(nanos);
+    }
+
+    void recordParseFailure(@NotNull FlagParseError error, long nanos) {
+        this.parseFailures[error.ordinal()].increment();
+        this.recordParse(nanos);
+    }
+
+    void recordCompletion(long nanos) {
+        this.completionCalls.increment();
+        this.completionLatency.record(nanos);
+    }
+
+    /**
+     * Gets the number of parses, including failed ones. Results served from the parse cache are not counted.
+     *
+     * @return The parse count.
+     */
+    public long getParseCalls() {
+        return this.parseCalls.sum();
+    }
+
+    public long getParseFailures() {
+        long failures = 0;
+        for (LongAdder adder : this.parseFailures) {
+            failures += adder.sum();
+        }
+        return failures;
+    }
+
+    /**
+     * Gets the number of parses failed for a reason. Invalid values of lazy parses are only counted if
+     * thrown during the parse itself.
+     *
+     * @param error The failure reason.
+     * @return The failure count.
+     */
+    public long getParseFailures(@NotNull FlagParseError error) {
+        return this.parseFailures[error.ordinal()].sum();
+    }
+
+    public long getCompletionCalls() {
+        return this.completionCalls.sum();
+    }
+
+    public @NotNull LatencyHistogram getParseLatency() {
+        return this.parseLatency;
+    }
+
+    public @NotNull LatencyHistogram getCompletionLatency() {
+        return this.completionLatency;
+    }
+
+    public void reset() {
+        this.parseCalls.reset();
+        for (LongAdder adder : this.parseFailures) {
+            adder.reset();
+        }
+        this.completionCalls.reset();
+        this.parseLatency.reset();
+        this.completionLatency.reset();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder failures = new StringBuilder();
+        for (FlagParseError error : FlagParseError.values()) {
+            long count = this.getParseFailures(error);
+            if (count > 0) {
+                failures.append(failures.length() == 0 ? "" : ", ").append(error).append('=').append(count);
+            }
+        }
+        return "FlagMetrics{" +
+                "parseCalls=" + getParseCalls() +
+                ", parseFailures={" + failures + '}' +
+                ", parseLatency={" + parseLatency + '}' +
+                ", completionCalls=" + getCompletionCalls() +
+                ", completionLatency={" + completionLatency + '}' +
+                '}';
+    }
+}
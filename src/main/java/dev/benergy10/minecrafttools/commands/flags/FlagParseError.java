@@ -0,0 +1,42 @@
+package dev.benergy10.minecrafttools.commands.flags;
+
+/**
+ * Reasons for flags failing to parse.
+ */
+public enum FlagParseError {
+
+    /**
+     * Argument is not a key of any flag in the group.
+     */
+    INVALID_FLAG,
+
+    /**
+     * Flag requires a value, but none was given.
+     */
+    MISSING_VALUE,
+
+    /**
+     * Flag does not take a value, but one was given.
+     */
+    UNEXPECTED_VALUE,
+
+    /**
+     * Value could not be converted by the flag.
+     */
+    INVALID_VALUE,
+
+    /**
+     * An argument in the array is null.
+     */
+    NULL_ARGUMENT,
+
+    /**
+     * A quoted token in a command line is not closed.
+     */
+    UNCLOSED_QUOTE,
+
+    /**
+     * Reason was not given.
+     */
+    UNKNOWN
+}
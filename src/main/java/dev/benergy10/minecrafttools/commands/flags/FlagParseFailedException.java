@@ -3,12 +3,32 @@ package dev.benergy10.minecrafttools.commands.flags;
 import co.aikar.commands.InvalidCommandArgument;
 import co.aikar.locales.MessageKey;
 import co.aikar.locales.MessageKeyProvider;
+import org.jetbrains.annotations.NotNull;
 
 /**
- * Thrown when there is an issue with parsing flags from string arguments.
+ * <p>Thrown when there is an issue with parsing flags from string arguments.</p>
+ *
+ * <p>Messages given as a format are only formatted when first read. Stack traces can be turned off for all
+ * instances with {@link #setStackless(boolean)}, as bad user input is expected and the trace is rarely useful.
+ * To avoid the exception entirely, see {@link FlagGroup#tryParse(String[])}.</p>
  */
 public class FlagParseFailedException extends InvalidCommandArgument {
 
+    private static volatile boolean stackless = false;
+
+    public static void setStackless(boolean state) {
+        stackless = state;
+    }
+
+    public static boolean isStackless() {
+        return stackless;
+    }
+
+    private FlagParseError error;
+    private String messageFormat;
+    private Object[] replacements;
+    private volatile String message;
+
     public FlagParseFailedException() {
     }
 
@@ -33,10 +53,57 @@ public class FlagParseFailedException extends InvalidCommandArgument {
     }
 
     public FlagParseFailedException(String message, Object...replacements) {
-        super(String.format(message, replacements));
+        super();
+        this.messageFormat = message;
+        this.replacements = replacements;
     }
 
     public FlagParseFailedException(String message, boolean showSyntax) {
         super(message, showSyntax);
     }
+
+    public FlagParseFailedException(FlagParseError error, String message, Object...replacements) {
+        this(message, replacements);
+        this.error = error;
+    }
+
+    /**
+     * Formats the message on first call. The format is kept, so threads racing here at most format it twice.
+     */
+    @Override
+    public String getMessage() {
+        String message = this.message;
+        if (message == null && this.messageFormat != null) {
+            message = String.format(this.messageFormat, this.replacements);
+            this.message = message;
+        }
+        return message != null ? message : super.getMessage();
+    }
+
+    @Override
+    public Throwable fillInStackTrace() {
+        return stackless ? this : super.fillInStackTrace();
+    }
+
+    /**
+     * Gets the reason of the parse failure.
+     *
+     * @return The {@link FlagParseError}, or {@link FlagParseError#UNKNOWN} if none was given.
+     */
+    public @NotNull FlagParseError getError() {
+        return this.error == null ? FlagParseError.UNKNOWN : this.error;
+    }
+
+    /**
+     * Sets the reason of the parse failure, if not already given.
+     *
+     * @param error The reason.
+     * @return This exception.
+     */
+    FlagParseFailedException withError(@NotNull FlagParseError error) {
+        if (this.error == null) {
+            this.error = error;
+        }
+        return this;
+    }
 }
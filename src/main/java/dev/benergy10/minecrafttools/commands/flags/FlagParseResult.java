@@ -0,0 +1,158 @@
+package dev.benergy10.minecrafttools.commands.flags;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p>Outcome of parsing flags without throwing, see {@link FlagGroup#tryParse(String[])}.</p>
+ *
+ * <p>A failed result keeps the message format and its arguments, and only formats the message when it
+ * is asked for. So rejecting bad input costs no string formatting or stack trace unless it is reported.</p>
+ */
+public final class FlagParseResult {
+
+    static FlagParseResult success(@NotNull FlagValues values) {
+        return new FlagParseResult(values, null, null, -1, null, null, null);
+    }
+
+    static FlagParseResult failure(@NotNull FlagParseError error,
+                                   @Nullable String token,
+                                   int position,
+                                   @NotNull String message,
+                                   Object... replacements) {
+
+        return new FlagParseResult(null, error, token, position, message, replacements, null);
+    }
+
+    static FlagParseResult failure(@NotNull FlagParseFailedException exception,
+                                   @Nullable String token,
+                                   int position) {
+
+        return new FlagParseResult(null, exception.getError(), token, position, null, null, exception);
+    }
+
+    private final FlagValues values;
+    private final FlagParseError error;
+    private final String token;
+    private final int position;
+    private final String messageFormat;
+    private final Object[] replacements;
+    private final FlagParseFailedException exception;
+    private volatile String message;
+
+    private FlagParseResult(FlagValues values,
+                            FlagParseError error,
+                            String token,
+                            int position,
+                            String messageFormat,
+                            Object[] replacements,
+                            FlagParseFailedException exception) {
+
+        this.values = values;
+        this.error = error;
+        this.token = token;
+        this.position = position;
+        this.messageFormat = messageFormat;
+        this.replacements = replacements;
+        this.exception = exception;
+    }
+
+    public boolean isSuccess() {
+        return this.values != null;
+    }
+
+    /**
+     * Gets the parsed values.
+     *
+     * @return The {@link FlagValues} if successful, else null.
+     */
+    @Nullable
+    public FlagValues getValues() {
+        return this.values;
+    }
+
+    /**
+     * Gets the parsed values, or throws the failure as an exception.
+     *
+     * @return The {@link FlagValues}.
+     */
+    @NotNull
+    public FlagValues getOrThrow() throws FlagParseFailedException {
+        if (this.values == null) {
+            throw this.toException();
+        }
+        return this.values;
+    }
+
+    /**
+     * @return The failure reason, or null if successful.
+     */
+    @Nullable
+    public FlagParseError getError() {
+        return this.error;
+    }
+
+    /**
+     * Gets the offending token. For a missing value, this is the identifier of the flag that needs it.
+     *
+     * @return The token text, or null if successful or the token itself is null.
+     */
+    @Nullable
+    public String getToken() {
+        return this.token;
+    }
+
+    /**
+     * Gets the index of the offending token, starting from 0.
+     *
+     * @return The token index, or -1 if successful or not known.
+     */
+    public int getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Gets the failure message, formatting it on first call.
+     *
+     * @return The message, or null if successful.
+     */
+    @Nullable
+    public String getMessage() {
+        String message = this.message;
+        if (message == null && !this.isSuccess()) {
+            message = this.exception != null
+                    ? this.exception.getMessage()
+                    : String.format(this.messageFormat, this.replacements);
+            this.message = message;
+        }
+        return message;
+    }
+
+    /**
+     * Gets the failure as an exception. Failures thrown during value conversion give back that same exception.
+     *
+     * @return A {@link FlagParseFailedException}, or null if successful.
+     */
+    @Nullable
+    public FlagParseFailedException toException() {
+        if (this.isSuccess()) {
+            return null;
+        }
+        return this.exception != null
+                ? this.exception
+                : new FlagParseFailedException(this.error, this.messageFormat, this.replacements);
+    }
+
+    @Override
+    public String toString() {
+        if (this.isSuccess()) {
+            return "FlagParseResult{values=" + values + '}';
+        }
+        return "FlagParseResult{" +
+                "error=" + error +
+                ", token='" + token + '\'' +
+                ", position=" + position +
+                ", message='" + getMessage() + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,160 @@
+package dev.benergy10.minecrafttools.commands.flags;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * <p>Bounded, thread-safe cache of tab-completion candidates for {@link FlagGroup}.</p>
+ *
+ * <p>Value suggestions of flags with {@link Flag#hasStaticSuggestions()} are already kept forever by the group
+ * itself, and flags with a {@link SuggestionProvider} are cached by the provider. Value suggestions of other
+ * flags are cached here per group and flag, and expire after a TTL. Cached candidates are sorted, so the
+ * partially typed argument is matched by binary search on every keystroke.</p>
+ */
+public class FlagSuggestionCache {
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 1000;
+    public static final long DEFAULT_TTL_MILLIS = 1000;
+
+    private final Cache<SuggestionKey, SuggestionTable> dynamicCache;
+
+    public FlagSuggestionCache() {
+        this(DEFAULT_MAXIMUM_SIZE, DEFAULT_TTL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param maximumSize   Maximum number of dynamic value suggestion entries.
+     * @param ttl           How long dynamic value suggestions are kept for.
+     * @param unit          Time unit of the ttl.
+     */
+    public FlagSuggestionCache(long maximumSize, long ttl, @NotNull TimeUnit unit) {
+        this.dynamicCache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl, unit)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Suggest possible next argument for a Flag Group, using cached results when available.
+     *
+     * @param group The target group.
+     * @param args  Current state of the arguments.
+     * @return An unmodifiable collection of suggested text for the next flag argument.
+     */
+    @NotNull
+    public Collection<String> suggest(@NotNull FlagGroup group, @NotNull String[] args) {
+        return this.suggest(group, args, null);
+    }
+
+    /**
+     * Suggest possible next argument for a Flag Group, using cached results when available. Stops early
+     * if the request is no longer needed, e.g. a newer one from the same sender has arrived.
+     *
+     * @param group     The target group.
+     * @param args      Current state of the arguments.
+     * @param cancelled Checked before each costly step, can be null.
+     * @return An unmodifiable collection of suggested text, empty if cancelled.
+     */
+    @NotNull
+    public Collection<String> suggest(@NotNull FlagGroup group,
+                                      @NotNull String[] args,
+                                      @Nullable BooleanSupplier cancelled) {
+
+        boolean timed = FlagMetrics.isEnabled();
+        long start = timed ? System.nanoTime() : 0L;
+        Flag<?> flag = group.getSuggestingFlag(args);
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            return Collections.emptyList();
+        }
+        SuggestionTable valueTable = this.getValueTable(group, flag);
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            return Collections.emptyList();
+        }
+        Collection<String> suggestions = group.suggestFor(flag,
+                group.getUsedFlags(args),
+                FlagGroup.getTypedPrefix(args),
+                valueTable);
+        if (timed) {
+            group.getMetrics().recordCompletion(System.nanoTime() - start);
+        }
+        return suggestions;
+    }
+
+    private SuggestionTable getValueTable(FlagGroup group, @Nullable Flag<?> flag) {
+        if (flag == null || flag instanceof NoValueFlag) {
+            return SuggestionTable.EMPTY;
+        }
+        SuggestionTable table = group.getStaticValueTable(flag);
+        if (table != null) {
+            return table;
+        }
+        SuggestionProvider provider = flag.getSuggestionProvider();
+        if (provider != null) {
+            // Provider has its own TTL and refreshes in the background.
+            return provider.getTable();
+        }
+        SuggestionKey key = new SuggestionKey(group, flag);
+        table = this.dynamicCache.getIfPresent(key);
+        if (table == null) {
+            table = SuggestionTable.of(flag.suggestValue());
+            this.dynamicCache.put(key, table);
+        }
+        return table;
+    }
+
+    /**
+     * Removes all cached suggestions.
+     */
+    public void invalidateAll() {
+        this.dynamicCache.invalidateAll();
+    }
+
+    /**
+     * Gets hit and miss counts of dynamic value suggestions.
+     *
+     * @return The {@link CacheStats}.
+     */
+    @NotNull
+    public CacheStats getStats() {
+        return this.dynamicCache.stats();
+    }
+
+    /**
+     * A flag within a group.
+     */
+    private static final class SuggestionKey {
+        private final FlagGroup group;
+        private final Flag<?> flag;
+
+        private SuggestionKey(FlagGroup group, Flag<?> flag) {
+            this.group = group;
+            this.flag = flag;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SuggestionKey)) {
+                return false;
+            }
+            SuggestionKey other = (SuggestionKey) o;
+            return this.group == other.group && this.flag == other.flag;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(this.group) + System.identityHashCode(this.flag);
+        }
+    }
+}
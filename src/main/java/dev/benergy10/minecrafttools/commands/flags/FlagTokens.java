@@ -0,0 +1,267 @@
+package dev.benergy10.minecrafttools.commands.flags;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cursor over the tokens of a flag input, either pre-split arguments or a raw command line.
+ */
+abstract class FlagTokens {
+
+    /**
+     * Tokens from pre-split arguments.
+     *
+     * @param args  The arguments, can be null.
+     * @return A new {@link FlagTokens}.
+     */
+    @NotNull
+    static FlagTokens of(@Nullable String[] args) {
+        return new ArrayTokens(args == null ? new String[0] : args);
+    }
+
+    /**
+     * Tokens split in place from a command line. Tokens are separated by whitespace, and can be quoted with
+     * {@code "} or {@code '}. A backslash escapes the next char, except within single quotes.
+     *
+     * @param line      The command line, which should not change while in use.
+     * @param offset    Index to start reading from.
+     * @return A new {@link FlagTokens}.
+     */
+    @NotNull
+    static FlagTokens of(@NotNull CharSequence line, int offset) {
+        return new LineTokens(line, offset);
+    }
+
+    private FlagParseResult failure;
+
+    /**
+     * Moves to the next token.
+     *
+     * @return True if there is a next token, else false. Also false if the input is invalid, in which case
+     *         {@link #hasFailed()} is true.
+     */
+    abstract boolean next();
+
+    /**
+     * Gets the index of the current token, starting from 0.
+     *
+     * @return The token index.
+     */
+    abstract int position();
+
+    /**
+     * Gets the flag the current token is a key of.
+     *
+     * @param group The group to look up in.
+     * @return The {@link Flag} if found, else null.
+     */
+    @Nullable
+    abstract Flag<?> toFlag(@NotNull FlagGroup group);
+
+    /**
+     * Gets the current token as a string.
+     *
+     * @return The token text.
+     */
+    @NotNull
+    abstract String text();
+
+    /**
+     * Adds the current token as the value of a flag.
+     *
+     * @param builder   The values being built.
+     * @param flag      The flag the value is for.
+     */
+    void addValueTo(@NotNull FlagValues.Builder builder, @NotNull Flag<?> flag) {
+        builder.addFromInput(flag, this.text());
+    }
+
+    /**
+     * Records a parse failure, so the parser can stop without throwing.
+     *
+     * @param error         The failure reason.
+     * @param token         The offending token.
+     * @param position      Index of the offending token.
+     * @param message       The message format.
+     * @param replacements  Arguments of the message format.
+     */
+    void fail(@NotNull FlagParseError error,
+              @Nullable String token,
+              int position,
+              @NotNull String message,
+              Object... replacements) {
+
+        this.failure = FlagParseResult.failure(error, token, position, message, replacements);
+    }
+
+    /**
+     * Records a parse failure thrown at the current token, e.g. from value conversion.
+     *
+     * @param exception The exception thrown.
+     */
+    void fail(@NotNull FlagParseFailedException exception) {
+        int position = this.position();
+        this.failure = FlagParseResult.failure(exception, position < 0 ? null : this.text(), position);
+    }
+
+    boolean hasFailed() {
+        return this.failure != null;
+    }
+
+    /**
+     * @return The recorded failure, or null if none.
+     */
+    @Nullable
+    FlagParseResult getFailure() {
+        return this.failure;
+    }
+
+    private static final class ArrayTokens extends FlagTokens {
+
+        private final String[] args;
+        private int index = -1;
+
+        private ArrayTokens(String[] args) {
+            this.args = args;
+        }
+
+        @Override
+        boolean next() {
+            if (this.index + 1 >= this.args.length) {
+                return false;
+            }
+            if (this.args[++this.index] == null) {
+                this.fail(FlagParseError.NULL_ARGUMENT, null, this.index, "Arguments cannot be null!");
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        int position() {
+            return this.index;
+        }
+
+        @Override
+        Flag<?> toFlag(@NotNull FlagGroup group) {
+            return group.getByKey(this.args[this.index]);
+        }
+
+        @Override
+        @NotNull String text() {
+            return this.args[this.index];
+        }
+    }
+
+    private static final class LineTokens extends FlagTokens {
+
+        private final CharSequence line;
+        private int cursor;
+        private int index = -1;
+        private int start;
+        private int end;
+        private boolean plain;
+
+        private LineTokens(CharSequence line, int offset) {
+            this.line = line;
+            this.cursor = offset;
+        }
+
+        @Override
+        boolean next() {
+            int length = this.line.length();
+            while (this.cursor < length && Character.isWhitespace(this.line.charAt(this.cursor))) {
+                this.cursor++;
+            }
+            if (this.cursor >= length) {
+                return false;
+            }
+
+            this.start = this.cursor;
+            this.plain = true;
+            char quote = 0;
+            while (this.cursor < length) {
+                char c = this.line.charAt(this.cursor);
+                if (c == '\\' && quote != '\'' && this.cursor + 1 < length) {
+                    this.plain = false;
+                    this.cursor += 2;
+                    continue;
+                }
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                    this.plain = false;
+                } else if (Character.isWhitespace(c)) {
+                    break;
+                }
+                this.cursor++;
+            }
+            if (quote != 0) {
+                String token = this.line.subSequence(this.start, length).toString();
+                this.fail(FlagParseError.UNCLOSED_QUOTE, token, this.index + 1,
+                        "Missing closing quote in: %s", token);
+                return false;
+            }
+            this.end = this.cursor;
+            this.index++;
+            return true;
+        }
+
+        @Override
+        int position() {
+            return this.index;
+        }
+
+        /**
+         * Quoted or escaped tokens are always values, even if their text is a flag key.
+         */
+        @Override
+        Flag<?> toFlag(@NotNull FlagGroup group) {
+            return this.plain ? group.getByKey(this.line, this.start, this.end) : null;
+        }
+
+        @Override
+        @NotNull String text() {
+            return this.plain
+                    ? this.line.subSequence(this.start, this.end).toString()
+                    : unquote(this.line, this.start, this.end);
+        }
+
+        /**
+         * Plain tokens are passed on as a region of the line, so no string is made unless the value is converted.
+         */
+        @Override
+        void addValueTo(@NotNull FlagValues.Builder builder, @NotNull Flag<?> flag) {
+            if (this.plain) {
+                builder.addFromInput(flag, this.line, this.start, this.end);
+                return;
+            }
+            super.addValueTo(builder, flag);
+        }
+
+        private static String unquote(CharSequence line, int start, int end) {
+            StringBuilder builder = new StringBuilder(end - start);
+            char quote = 0;
+            for (int i = start; i < end; i++) {
+                char c = line.charAt(i);
+                if (c == '\\' && quote != '\'' && i + 1 < end) {
+                    builder.append(line.charAt(++i));
+                } else if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    } else {
+                        builder.append(c);
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else {
+                    builder.append(c);
+                }
+            }
+            return builder.toString();
+        }
+    }
+}
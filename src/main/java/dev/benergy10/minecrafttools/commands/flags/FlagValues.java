@@ -4,11 +4,14 @@ import com.google.common.base.Strings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.StringJoiner;
 
 /**
- * Represents the value result parsed from command arguments.
+ * <p>Represents the value result parsed from command arguments.</p>
+ *
+ * <p>Values from {@link #parseLazily(String[], FlagGroup)} are converted and cached on first read, so a
+ * lazily parsed instance should be read from one thread, or be {@link #validateAll() validated} before
+ * being handed to another.</p>
  */
 public class FlagValues {
 
@@ -26,33 +29,169 @@ public class FlagValues {
     public static FlagValues parse(@Nullable String[] args,
                                    @NotNull FlagGroup flagGroup) throws FlagParseFailedException {
 
-        Builder flagResult = new Builder(flagGroup);
+        return parse(FlagTokens.of(args), new Builder(flagGroup));
+    }
+
+    /**
+     * Parse arguments into its flag key, but only convert values on first {@link #get(Flag)}.
+     * Invalid values are thrown then instead, unless checked earlier with {@link #validateAll()}.
+     *
+     * @param args      The arguments to parse.
+     * @param flagGroup The flags available to parse into.
+     * @return The {@link FlagValues} from the parse.
+     */
+    public static FlagValues parseLazily(@Nullable String[] args,
+                                         @NotNull FlagGroup flagGroup) throws FlagParseFailedException {
+
+        return parse(FlagTokens.of(args), new Builder(flagGroup, true));
+    }
+
+    /**
+     * Parse a raw command line into its flag key and values, splitting it into tokens in place.
+     * Tokens are separated by whitespace, and can be quoted with {@code "} or {@code '}, or have chars escaped
+     * with a backslash. Quoted tokens are always treated as values.
+     *
+     * @param line      The command line to parse.
+     * @param offset    Index in the line where flags start.
+     * @param flagGroup The flags available to parse into.
+     * @return The {@link FlagValues} from the parse.
+     */
+    public static FlagValues parse(@NotNull CharSequence line,
+                                   int offset,
+                                   @NotNull FlagGroup flagGroup) throws FlagParseFailedException {
+
+        return parse(FlagTokens.of(line, offset), new Builder(flagGroup));
+    }
+
+    /**
+     * Parse a raw command line into its flag key, but only convert values on first {@link #get(Flag)}.
+     * Values are kept as regions of the line until then, so the line must not change afterwards.
+     *
+     * @param line      The command line to parse.
+     * @param offset    Index in the line where flags start.
+     * @param flagGroup The flags available to parse into.
+     * @return The {@link FlagValues} from the parse.
+     */
+    public static FlagValues parseLazily(@NotNull CharSequence line,
+                                         int offset,
+                                         @NotNull FlagGroup flagGroup) throws FlagParseFailedException {
+
+        return parse(FlagTokens.of(line, offset), new Builder(flagGroup, true));
+    }
+
+    /**
+     * Parse arguments into its flag key and values, returning a failed result instead of throwing
+     * on invalid input.
+     *
+     * @param args      The arguments to parse.
+     * @param flagGroup The flags available to parse into.
+     * @return The {@link FlagParseResult} of the parse.
+     */
+    @NotNull
+    public static FlagParseResult tryParse(@Nullable String[] args, @NotNull FlagGroup flagGroup) {
+        return tryParse(FlagTokens.of(args), new Builder(flagGroup));
+    }
+
+    /**
+     * Parse a raw command line into its flag key and values, returning a failed result instead of throwing
+     * on invalid input.
+     *
+     * @param line      The command line to parse.
+     * @param offset    Index in the line where flags start.
+     * @param flagGroup The flags available to parse into.
+     * @return The {@link FlagParseResult} of the parse.
+     */
+    @NotNull
+    public static FlagParseResult tryParse(@NotNull CharSequence line, int offset, @NotNull FlagGroup flagGroup) {
+        return tryParse(FlagTokens.of(line, offset), new Builder(flagGroup));
+    }
+
+    private static FlagValues parse(@NotNull FlagTokens tokens,
+                                    @NotNull Builder flagResult) throws FlagParseFailedException {
+
+        FlagValues values = parseAndRecord(tokens, flagResult);
+        if (values == null) {
+            throw tokens.getFailure().toException();
+        }
+        return values;
+    }
+
+    private static FlagParseResult tryParse(@NotNull FlagTokens tokens, @NotNull Builder flagResult) {
+        FlagValues values = parseAndRecord(tokens, flagResult);
+        return values == null ? tokens.getFailure() : FlagParseResult.success(values);
+    }
+
+    /**
+     * Parse the tokens, recording metrics if enabled.
+     *
+     * @return The parsed values, or null with the failure kept in {@link FlagTokens#getFailure()}.
+     */
+    @Nullable
+    private static FlagValues parseAndRecord(@NotNull FlagTokens tokens, @NotNull Builder flagResult) {
+        boolean timed = FlagMetrics.isEnabled();
+        long start = timed ? System.nanoTime() : 0L;
+        FlagValues values;
+        try {
+            values = parseTokens(tokens, flagResult);
+        } catch (FlagParseFailedException e) {
+            // Errors from the parser itself are never thrown, so the rest are from value conversion.
+            tokens.fail(e.withError(FlagParseError.INVALID_VALUE));
+            values = null;
+        }
+        if (timed) {
+            FlagMetrics metrics = flagResult.result.flagGroup.getMetrics();
+            if (values == null) {
+                metrics.recordParseFailure(tokens.getFailure().getError(), System.nanoTime() - start);
+            } else {
+                metrics.recordParse(System.nanoTime() - start);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Parse the tokens. Invalid input found by the parser is recorded in the tokens instead of thrown,
+     * only value conversion can throw.
+     *
+     * @return The parsed values, or null if failed.
+     */
+    @Nullable
+    private static FlagValues parseTokens(@NotNull FlagTokens tokens,
+                                          @NotNull Builder flagResult) throws FlagParseFailedException {
+
+        FlagGroup flagGroup = flagResult.result.flagGroup;
 
         // No args to parse.
-        if (args == null || args.length <= 0) {
-            return flagResult.finalise();
+        if (!tokens.next()) {
+            return tokens.hasFailed() ? null : flagResult.finalise();
         }
 
         // First arg must be a flag.
-        Flag<?> currentFlag = flagGroup.getByKey(args[0]);
-        boolean completed = false;
+        Flag<?> currentFlag = tokens.toFlag(flagGroup);
 
         // Parse the arguments.
-        for (int i = 1, argsLength = args.length; i <= argsLength; i++) {
+        while (true) {
             if (currentFlag == null) {
-                throw new FlagParseFailedException("%s is not a valid flag.", args[i-1]);
-            }
-            // This ensures that flag is not null during final parse.
-            if (i >= argsLength) {
-                break;
+                String token = tokens.text();
+                tokens.fail(FlagParseError.INVALID_FLAG, token, tokens.position(), "%s is not a valid flag.", token);
+                return null;
             }
+            int keyPosition = tokens.position();
 
-            String arg = args[i];
-            if (arg == null) {
-                throw new FlagParseFailedException("Arguments cannot be null!");
+            // Parse last flag.
+            if (!tokens.next()) {
+                if (tokens.hasFailed()) {
+                    return null;
+                }
+                if (currentFlag instanceof RequiredValueFlag) {
+                    failMissingValue(tokens, currentFlag, keyPosition);
+                    return null;
+                }
+                flagResult.addFromInput(currentFlag, null);
+                break;
             }
 
-            Flag<?> nextFlag = flagGroup.getByKey(arg);
+            Flag<?> nextFlag = tokens.toFlag(flagGroup);
 
             // Arg must be a flag key.
             if (currentFlag instanceof NoValueFlag) {
@@ -61,59 +200,53 @@ public class FlagValues {
                 continue;
             }
 
-            // Arg can be a flag key or value.
-            if (currentFlag instanceof OptionalValueFlag) {
-                if (nextFlag != null) {
-                    // It's a key.
-                    flagResult.addFromInput(currentFlag, null);
-                    currentFlag = nextFlag;
-                    continue;
-                }
-                // It's a value.
-                flagResult.addFromInput(currentFlag, arg);
-                if (i == argsLength - 1) {
-                    completed = true;
-                    break;
+            if (nextFlag != null) {
+                // Arg must be a flag value, error!
+                if (currentFlag instanceof RequiredValueFlag) {
+                    failMissingValue(tokens, currentFlag, keyPosition);
+                    return null;
                 }
-                currentFlag = flagGroup.getByKey(args[++i]);
+                // Arg can be a flag key or value, it's a key.
+                flagResult.addFromInput(currentFlag, null);
+                currentFlag = nextFlag;
                 continue;
             }
 
-            // Arg must be a flag value.
-            if (currentFlag instanceof RequiredValueFlag) {
-                if (nextFlag != null) {
-                    // It's a key, error!
-                    throw new FlagParseFailedException("%s flag '%s' requires a value input.",
-                            currentFlag.getName(), currentFlag.getIdentifier());
+            // It's a value.
+            tokens.addValueTo(flagResult, currentFlag);
+            if (!tokens.next()) {
+                if (tokens.hasFailed()) {
+                    return null;
                 }
-                // It's a value.
-                flagResult.addFromInput(currentFlag, arg);
-                if (i == argsLength - 1) {
-                    completed = true;
-                    break;
-                }
-                currentFlag = flagGroup.getByKey(args[++i]);
-            }
-        }
-
-        // Parse last flag.
-        if (!completed) {
-            if (currentFlag instanceof RequiredValueFlag) {
-                throw new FlagParseFailedException("%s flag '%s' requires a value input.",
-                        currentFlag.getName(), currentFlag.getIdentifier());
+                break;
             }
-            flagResult.addFromInput(currentFlag, null);
+            currentFlag = tokens.toFlag(flagGroup);
         }
 
         return flagResult.finalise();
     }
 
+    private static void failMissingValue(FlagTokens tokens, Flag<?> flag, int keyPosition) {
+        tokens.fail(FlagParseError.MISSING_VALUE, flag.getIdentifier(), keyPosition,
+                "%s flag '%s' requires a value input.", flag.getName(), flag.getIdentifier());
+    }
+
+    private static final byte PRESENT = 1;
+    private static final byte USER_INPUT = 1 << 1;
+    private static final byte PENDING = 1 << 2;
+    private static final byte PRIMITIVE = 1 << 3;
+
     private final FlagGroup flagGroup;
-    private final Map<Flag<?>, SingleFlagResult<?>> resultMap;
+    private final Object[] values;
+    private final byte[] states;
+    private long[] primitives;
+    private CharSequence regionSource;
+    private int[] regions;
 
     private FlagValues(FlagGroup flagGroup) {
         this.flagGroup = flagGroup;
-        resultMap = new HashMap<>();
+        this.values = new Object[flagGroup.size()];
+        this.states = new byte[flagGroup.size()];
     }
 
     /**
@@ -124,14 +257,132 @@ public class FlagValues {
      * @return The value which is associated with the flag.
      */
     public <T> T get(Flag<T> flag) {
-        if (!this.flagGroup.containsFlag(flag)) {
-            throw new IllegalArgumentException("Flag is not in group: " + flag.getName());
-        }
-        SingleFlagResult<?> result = resultMap.get(flag);
-        if (result == null) {
+        int slot = this.slotOf(flag);
+        if ((this.states[slot] & PRESENT) == 0) {
             return flag.getDefaultValue();
         }
-        return (T) result.value;
+        if ((this.states[slot] & PENDING) != 0) {
+            this.convert(slot);
+        }
+        if ((this.states[slot] & PRIMITIVE) != 0) {
+            return (T) this.boxPrimitive(slot);
+        }
+        return (T) this.values[slot];
+    }
+
+    /**
+     * Gets value of an int flag, without boxing if it is a {@link PrimitiveFlag}. Other flags must not have a
+     * null default value.
+     *
+     * @param flag  The flag to get value from.
+     * @return The value which is associated with the flag.
+     */
+    public int getInt(Flag<Integer> flag) {
+        int slot = this.slotOf(flag);
+        if ((this.states[slot] & PRESENT) == 0) {
+            return flag instanceof PrimitiveFlag
+                    ? (int) ((PrimitiveFlag<?>) flag).getDefaultValueBits()
+                    : flag.getDefaultValue();
+        }
+        if ((this.states[slot] & PENDING) != 0) {
+            this.convert(slot);
+        }
+        if ((this.states[slot] & PRIMITIVE) != 0) {
+            return (int) this.primitives[slot];
+        }
+        return ((Number) this.values[slot]).intValue();
+    }
+
+    /**
+     * Gets value of a long flag, without boxing if it is a {@link PrimitiveFlag}. Other flags must not have a
+     * null default value.
+     *
+     * @param flag  The flag to get value from.
+     * @return The value which is associated with the flag.
+     */
+    public long getLong(Flag<Long> flag) {
+        int slot = this.slotOf(flag);
+        if ((this.states[slot] & PRESENT) == 0) {
+            return flag instanceof PrimitiveFlag
+                    ? ((PrimitiveFlag<?>) flag).getDefaultValueBits()
+                    : flag.getDefaultValue();
+        }
+        if ((this.states[slot] & PENDING) != 0) {
+            this.convert(slot);
+        }
+        if ((this.states[slot] & PRIMITIVE) != 0) {
+            return this.primitives[slot];
+        }
+        return ((Number) this.values[slot]).longValue();
+    }
+
+    /**
+     * Gets value of a double flag, without boxing if it is a {@link PrimitiveFlag}. Other flags must not have a
+     * null default value.
+     *
+     * @param flag  The flag to get value from.
+     * @return The value which is associated with the flag.
+     */
+    public double getDouble(Flag<Double> flag) {
+        int slot = this.slotOf(flag);
+        if ((this.states[slot] & PRESENT) == 0) {
+            return flag instanceof PrimitiveFlag
+                    ? Double.longBitsToDouble(((PrimitiveFlag<?>) flag).getDefaultValueBits())
+                    : flag.getDefaultValue();
+        }
+        if ((this.states[slot] & PENDING) != 0) {
+            this.convert(slot);
+        }
+        if ((this.states[slot] & PRIMITIVE) != 0) {
+            return Double.longBitsToDouble(this.primitives[slot]);
+        }
+        return ((Number) this.values[slot]).doubleValue();
+    }
+
+    /**
+     * Converts every value not yet converted from a lazy parse, so invalid input fails right away.
+     *
+     * @return This {@link FlagValues}.
+     */
+    public FlagValues validateAll() throws FlagParseFailedException {
+        for (int slot = 0; slot < this.states.length; slot++) {
+            if ((this.states[slot] & PENDING) != 0) {
+                this.convert(slot);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Converts the raw input stored in a slot, and caches the result.
+     *
+     * @param slot  The slot to convert.
+     */
+    private void convert(int slot) {
+        Flag<?> flag = this.flagGroup.getFlag(slot);
+        String input = this.getInput(slot);
+        try {
+            if (this.setPrimitive(slot, flag, input)) {
+                return;
+            }
+            this.values[slot] = flag.getValue(input);
+        } catch (FlagParseFailedException e) {
+            throw e.withError(FlagParseError.INVALID_VALUE);
+        }
+        this.states[slot] &= ~PENDING;
+    }
+
+    /**
+     * Gets the raw input of a slot that is pending conversion.
+     *
+     * @param slot  The target slot.
+     * @return The raw input.
+     */
+    private String getInput(int slot) {
+        if (this.values[slot] != null) {
+            return (String) this.values[slot];
+        }
+        return this.regionSource.subSequence(this.regions[slot * 2], this.regions[slot * 2 + 1]).toString();
     }
 
     /**
@@ -141,22 +392,37 @@ public class FlagValues {
      * @return True if value is by user input, else false.
      */
     public boolean isByUserInput(Flag<?> flag) {
-        SingleFlagResult<?> result = resultMap.get(flag);
-        if (result == null) {
-            return false;
-        }
-        return result.isFromUserInput;
+        int slot = this.flagGroup.indexOf(flag);
+        return slot >= 0 && (this.states[slot] & USER_INPUT) != 0;
     }
 
     /**
      * Gets if the flag is a default value, and key was not present in user's command arguments.
-     * i.e. Not in the {@link #resultMap}.
      *
      * @param flag  The flag to check against.
      * @return True if flag was not present in user's command arguments, else false.
      */
     public boolean isDefaulted(Flag<?> flag) {
-        return resultMap.get(flag) != null;
+        int slot = this.flagGroup.indexOf(flag);
+        return slot < 0 || (this.states[slot] & PRESENT) == 0;
+    }
+
+    /**
+     * Gets if every value from user input is fully converted by deterministic flags, so this instance can be
+     * shared between parses of the same input.
+     *
+     * @return True if shareable, else false.
+     */
+    boolean isShareable() {
+        for (int slot = 0; slot < this.states.length; slot++) {
+            if ((this.states[slot] & PENDING) != 0) {
+                return false;
+            }
+            if ((this.states[slot] & PRESENT) != 0 && !this.flagGroup.getFlag(slot).isDeterministic()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public boolean isForGroup(FlagGroup group) {
@@ -167,47 +433,93 @@ public class FlagValues {
         return this.flagGroup;
     }
 
-    @Override
-    public String toString() {
-        return "FlagResult{" +
-                "resultMap=" + resultMap +
-                '}';
+    private int slotOf(Flag<?> flag) {
+        int slot = this.flagGroup.indexOf(flag);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Flag is not in group: " + flag.getName());
+        }
+        return slot;
+    }
+
+    private void set(int slot, Object value, boolean fromInput) {
+        this.values[slot] = value;
+        this.states[slot] = fromInput ? PRESENT | USER_INPUT : PRESENT;
     }
 
     /**
-     * Represents a single value result parsed.
-     * Stores value and addition data such as if value is by user input.
+     * Parse and store the input of a primitive flag without boxing.
      *
-     * @param <T>   The type of value.
+     * @param slot  The target slot.
+     * @param flag  The flag at that slot.
+     * @param input The user input.
+     * @return True if flag is primitive and value is stored, else false.
      */
-    private static class SingleFlagResult<T> {
-        private final T value;
-        private final boolean isFromUserInput;
+    private boolean setPrimitive(int slot, Flag<?> flag, String input) {
+        if (!(flag instanceof PrimitiveFlag)) {
+            return false;
+        }
+        long bits = ((PrimitiveFlag<?>) flag).getValueBits(input);
+        if (this.primitives == null) {
+            this.primitives = new long[this.states.length];
+        }
+        this.primitives[slot] = bits;
+        this.values[slot] = null;
+        this.states[slot] = PRESENT | USER_INPUT | PRIMITIVE;
+        return true;
+    }
 
-        /**
-         * @param value     The resultant value from argument parsing.
-         * @param fromInput Indicates if value is parsed by user input.
-         */
-        private SingleFlagResult(T value, boolean fromInput) {
-            this.value = value;
-            this.isFromUserInput = fromInput;
+    private Object boxPrimitive(int slot) {
+        PrimitiveFlag<?> flag = (PrimitiveFlag<?>) this.flagGroup.getFlag(slot);
+        return flag.getPrimitiveKind().fromBits(this.primitives[slot]);
+    }
+
+    private void setPending(int slot, String input) {
+        this.values[slot] = input;
+        this.states[slot] = PRESENT | USER_INPUT | PENDING;
+    }
+
+    private void setPending(int slot, CharSequence source, int start, int end) {
+        if (this.regions == null) {
+            this.regionSource = source;
+            this.regions = new int[this.states.length * 2];
         }
+        this.regions[slot * 2] = start;
+        this.regions[slot * 2 + 1] = end;
+        this.setPending(slot, null);
+    }
 
-        @Override
-        public String toString() {
-            return "SingleFlagResult{" +
-                    "value=" + value +
-                    ", isFromUserInput=" + isFromUserInput +
-                    '}';
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "FlagResult{", "}");
+        for (int slot = 0; slot < this.states.length; slot++) {
+            if ((this.states[slot] & PRESENT) != 0) {
+                Object value = (this.states[slot] & PENDING) != 0 ? this.getInput(slot)
+                        : (this.states[slot] & PRIMITIVE) != 0 ? this.boxPrimitive(slot)
+                        : this.values[slot];
+                joiner.add(this.flagGroup.getFlag(slot).getIdentifier() + "=" + value
+                        + ((this.states[slot] & USER_INPUT) != 0 ? " (input)" : "")
+                        + ((this.states[slot] & PENDING) != 0 ? " (pending)" : ""));
+            }
         }
+        return joiner.toString();
     }
 
     public static class Builder {
 
         private final FlagValues result;
+        private final boolean lazy;
 
         public Builder(FlagGroup group) {
+            this(group, false);
+        }
+
+        /**
+         * @param group The group to build values for.
+         * @param lazy  Whether to keep raw input and only convert it on first get.
+         */
+        public Builder(FlagGroup group, boolean lazy) {
             this.result = new FlagValues(group);
+            this.lazy = lazy;
         }
 
         /**
@@ -218,14 +530,37 @@ public class FlagValues {
          * @return The builder.
          */
         public Builder addFromInput(Flag<?> flag, @Nullable String inputValue) {
-            if (!this.result.flagGroup.containsFlag(flag)) {
-                throw new IllegalArgumentException("Flag is not in group: " + flag.getName());
-            }
+            int slot = this.result.slotOf(flag);
             if (Strings.isNullOrEmpty(inputValue)) {
-                this.result.resultMap.put(flag, new SingleFlagResult<>(flag.getValue(), false));
+                this.result.set(slot, flag.getValue(), false);
+                return this;
+            }
+            if (this.lazy) {
+                this.result.setPending(slot, inputValue);
                 return this;
             }
-            this.result.resultMap.put(flag, new SingleFlagResult<>(flag.getValue(inputValue), true));
+            if (this.result.setPrimitive(slot, flag, inputValue)) {
+                return this;
+            }
+            this.result.set(slot, flag.getValue(inputValue), true);
+            return this;
+        }
+
+        /**
+         * Add a new value result from a region of a command line. With lazy conversion, the region is kept
+         * and only turned into a string when converted.
+         *
+         * @param flag      The flag that the value represents.
+         * @param source    The command line, which all regions added to this builder must be from.
+         * @param start     Start index of the raw input, inclusive.
+         * @param end       End index of the raw input, exclusive.
+         * @return The builder.
+         */
+        Builder addFromInput(Flag<?> flag, CharSequence source, int start, int end) {
+            if (!this.lazy || start >= end) {
+                return this.addFromInput(flag, source.subSequence(start, end).toString());
+            }
+            this.result.setPending(this.result.slotOf(flag), source, start, end);
             return this;
         }
 
@@ -238,10 +573,7 @@ public class FlagValues {
          * @return The builder.
          */
         public <T> Builder add(Flag<T> flag, T value) {
-            if (!this.result.flagGroup.containsFlag(flag)) {
-                throw new IllegalArgumentException("Flag is not in group: " + flag.getName());
-            }
-            this.result.resultMap.put(flag, new SingleFlagResult<>(value, false));
+            this.result.set(this.result.slotOf(flag), value, false);
             return this;
         }
 
@@ -0,0 +1,66 @@
+package dev.benergy10.minecrafttools.commands.flags;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Required value flag of an {@code int}, which {@link FlagValues} stores without boxing.
+ * Read it with {@link FlagValues#getInt(Flag)}.
+ */
+public abstract class IntFlag extends RequiredValueFlag<Integer> implements PrimitiveFlag<Integer> {
+
+    /**
+     * @param name          Readable name for the flag.
+     * @param identifier    Unique key to identify the flag in command arguments.
+     */
+    public IntFlag(String name, String identifier) {
+        super(name, identifier, Integer.class);
+    }
+
+    /**
+     * Parse a user input to an {@code int}.
+     *
+     * @param input The string to parse.
+     * @return The {@code int} value.
+     */
+    public abstract int getIntValue(@NotNull String input);
+
+    /**
+     * When this Command Flag is not present in command input.
+     *
+     * @return The {@code int} value.
+     */
+    public int getDefaultIntValue() {
+        return 0;
+    }
+
+    /**
+     * Boxed version of {@link #getIntValue(String)}.
+     */
+    @Override
+    public final Integer getValue(@NotNull String input) {
+        return this.getIntValue(input);
+    }
+
+    /**
+     * Boxed version of {@link #getDefaultIntValue()}.
+     */
+    @Override
+    public final Integer getDefaultValue() {
+        return this.getDefaultIntValue();
+    }
+
+    @Override
+    public final @NotNull PrimitiveKind<Integer> getPrimitiveKind() {
+        return PrimitiveKind.INT;
+    }
+
+    @Override
+    public final long getValueBits(@NotNull String input) {
+        return this.getIntValue(input);
+    }
+
+    @Override
+    public final long getDefaultValueBits() {
+        return this.getDefaultIntValue();
+    }
+}
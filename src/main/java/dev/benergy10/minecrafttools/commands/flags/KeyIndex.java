@@ -0,0 +1,117 @@
+package dev.benergy10.minecrafttools.commands.flags;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+
+/**
+ * <p>Immutable, case-insensitive hash index of string keys.</p>
+ *
+ * <p>Case is folded one char at a time during hashing and comparison, so lookups never
+ * create a lowercased copy of the key. Lookups can also be done on a region of any
+ * {@link CharSequence} without extracting it as a string first.</p>
+ *
+ * @param <V>   The value type.
+ */
+final class KeyIndex<V> {
+
+    private final String[] keys;
+    private final Object[] values;
+    private final int mask;
+    private final int size;
+
+    /**
+     * Builds the index. When two keys only differ by case, the latter one wins.
+     *
+     * @param entries   The key value pairs to index.
+     */
+    KeyIndex(@NotNull Map<String, ? extends V> entries) {
+        int capacity = tableSizeFor(entries.size());
+        this.keys = new String[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+
+        int count = 0;
+        for (Map.Entry<String, ? extends V> entry : entries.entrySet()) {
+            String key = entry.getKey();
+            int slot = hash(key, 0, key.length()) & this.mask;
+            while (this.keys[slot] != null && !matches(this.keys[slot], key, 0, key.length())) {
+                slot = (slot + 1) & this.mask;
+            }
+            if (this.keys[slot] == null) {
+                count++;
+            }
+            this.keys[slot] = key;
+            this.values[slot] = entry.getValue();
+        }
+        this.size = count;
+    }
+
+    /**
+     * Gets the value of a key, ignoring case.
+     *
+     * @param key   The target key.
+     * @return The value if found, else null.
+     */
+    @Nullable
+    V get(@NotNull CharSequence key) {
+        return get(key, 0, key.length());
+    }
+
+    /**
+     * Gets the value of a key that is a region of a char sequence, ignoring case.
+     *
+     * @param source    The sequence containing the key.
+     * @param start     Start index of the key, inclusive.
+     * @param end       End index of the key, exclusive.
+     * @return The value if found, else null.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    V get(@NotNull CharSequence source, int start, int end) {
+        int slot = hash(source, start, end) & this.mask;
+        String candidate;
+        while ((candidate = this.keys[slot]) != null) {
+            if (matches(candidate, source, start, end)) {
+                return (V) this.values[slot];
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return null;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    private static int tableSizeFor(int entries) {
+        // Keep load factor at or below 0.5 so probe chains stay short.
+        int capacity = Integer.highestOneBit(Math.max(entries, 1) * 2 - 1) << 1;
+        return Math.max(capacity, 2);
+    }
+
+    private static int hash(CharSequence source, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + fold(source.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(String key, CharSequence source, int start, int end) {
+        if (key.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (fold(key.charAt(i)) != fold(source.charAt(start + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
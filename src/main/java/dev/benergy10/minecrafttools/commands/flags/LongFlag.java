@@ -0,0 +1,66 @@
+package dev.benergy10.minecrafttools.commands.flags;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Required value flag of a {@code long}, which {@link FlagValues} stores without boxing.
+ * Read it with {@link FlagValues#getLong(Flag)}.
+ */
+public abstract class LongFlag extends RequiredValueFlag<Long> implements PrimitiveFlag<Long> {
+
+    /**
+     * @param name          Readable name for the flag.
+     * @param identifier    Unique key to identify the flag in command arguments.
+     */
+    public LongFlag(String name, String identifier) {
+        super(name, identifier, Long.class);
+    }
+
+    /**
+     * Parse a user input to a {@code long}.
+     *
+     * @param input The string to parse.
+     * @return The {@code long} value.
+     */
+    public abstract long getLongValue(@NotNull String input);
+
+    /**
+     * When this Command Flag is not present in command input.
+     *
+     * @return The {@code long} value.
+     */
+    public long getDefaultLongValue() {
+        return 0;
+    }
+
+    /**
+     * Boxed version of {@link #getLongValue(String)}.
+     */
+    @Override
+    public final Long getValue(@NotNull String input) {
+        return this.getLongValue(input);
+    }
+
+    /**
+     * Boxed version of {@link #getDefaultLongValue()}.
+     */
+    @Override
+    public final Long getDefaultValue() {
+        return this.getDefaultLongValue();
+    }
+
+    @Override
+    public final @NotNull PrimitiveKind<Long> getPrimitiveKind() {
+        return PrimitiveKind.LONG;
+    }
+
+    @Override
+    public final long getValueBits(@NotNull String input) {
+        return this.getLongValue(input);
+    }
+
+    @Override
+    public final long getDefaultValueBits() {
+        return this.getDefaultLongValue();
+    }
+}
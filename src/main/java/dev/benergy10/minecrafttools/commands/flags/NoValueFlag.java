@@ -28,12 +28,20 @@ public abstract class NoValueFlag<T> extends Flag<T> {
         return Collections.emptyList();
     }
 
+    /**
+     * {@link NoValueFlag} has no value suggestions, so they never change.
+     */
+    @Override
+    public final boolean hasStaticSuggestions() {
+        return true;
+    }
+
     /**
      * {@link NoValueFlag} will always not require a user input to parse value.
      * Thus, this operation is not allowed.
      */
     @Override
     public final T getValue(@NotNull String input) {
-        throw new FlagParseFailedException("%s flag '%s' does not require a value.", this.name, this.identifier);
+        throw new FlagParseFailedException(FlagParseError.UNEXPECTED_VALUE, "%s flag '%s' does not require a value.", this.name, this.identifier);
     }
 }
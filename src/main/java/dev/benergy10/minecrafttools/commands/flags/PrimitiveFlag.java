@@ -0,0 +1,33 @@
+package dev.benergy10.minecrafttools.commands.flags;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link Flag} whose parsed values {@link FlagValues} stores without boxing, as the raw bits of its
+ * {@link PrimitiveKind}. Read them with {@link FlagValues#getInt(Flag)}, {@link FlagValues#getLong(Flag)} or
+ * {@link FlagValues#getDouble(Flag)}.
+ *
+ * @param <T>   The boxed type of the value.
+ */
+public interface PrimitiveFlag<T extends Number> {
+
+    /**
+     * @return The {@link PrimitiveKind} values are stored as.
+     */
+    @NotNull PrimitiveKind<T> getPrimitiveKind();
+
+    /**
+     * Parse a user input to the raw bits of its value.
+     *
+     * @param input The string to parse.
+     * @return The raw bits, see {@link PrimitiveKind#toBits(Number)}.
+     */
+    long getValueBits(@NotNull String input);
+
+    /**
+     * When this Command Flag is not present in command input.
+     *
+     * @return The raw bits, see {@link PrimitiveKind#toBits(Number)}.
+     */
+    long getDefaultValueBits();
+}
@@ -0,0 +1,56 @@
+package dev.benergy10.minecrafttools.commands.flags;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Kind of primitive a {@link PrimitiveFlag} value is stored as in {@link FlagValues}, as the raw bits of a
+ * {@code long}. Doubles are stored by their raw bits.
+ *
+ * @param <T>   The boxed type of the value.
+ */
+public final class PrimitiveKind<T extends Number> {
+
+    public static final PrimitiveKind<Integer> INT = new PrimitiveKind<>(Integer.class,
+            value -> value, bits -> (int) bits);
+    public static final PrimitiveKind<Long> LONG = new PrimitiveKind<>(Long.class, value -> value, bits -> bits);
+    public static final PrimitiveKind<Double> DOUBLE = new PrimitiveKind<>(Double.class,
+            Double::doubleToRawLongBits, Double::longBitsToDouble);
+
+    private final Class<T> type;
+    private final ToLongFunction<T> toBits;
+    private final LongFunction<T> fromBits;
+
+    private PrimitiveKind(Class<T> type, ToLongFunction<T> toBits, LongFunction<T> fromBits) {
+        this.type = type;
+        this.toBits = toBits;
+        this.fromBits = fromBits;
+    }
+
+    public @NotNull Class<T> getType() {
+        return this.type;
+    }
+
+    /**
+     * @param value The value.
+     * @return The raw bits stored for the value.
+     */
+    public long toBits(@NotNull T value) {
+        return this.toBits.applyAsLong(value);
+    }
+
+    /**
+     * @param bits  The raw bits stored for a value.
+     * @return The boxed value.
+     */
+    public @NotNull T fromBits(long bits) {
+        return this.fromBits.apply(bits);
+    }
+
+    @Override
+    public String toString() {
+        return "PrimitiveKind{" + type.getSimpleName() + '}';
+    }
+}
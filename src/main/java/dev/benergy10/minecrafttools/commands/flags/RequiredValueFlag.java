@@ -20,6 +20,6 @@ public abstract class RequiredValueFlag<T> extends Flag<T> {
      */
     @Override
     public final T getValue() {
-        throw new FlagParseFailedException("%s flag '%s' requires a value input.", this.name, this.identifier);
+        throw new FlagParseFailedException(FlagParseError.MISSING_VALUE, "%s flag '%s' requires a value input.", this.name, this.identifier);
     }
 }
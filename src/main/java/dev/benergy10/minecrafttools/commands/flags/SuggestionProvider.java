@@ -0,0 +1,204 @@
+package dev.benergy10.minecrafttools.commands.flags;
+
+import dev.benergy10.minecrafttools.utils.Logging;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * <p>Source of dynamic value suggestions for a {@link Flag}, such as online players or warps, that is loaded
+ * in the background and kept for a TTL.</p>
+ *
+ * <p>Reading suggestions never waits on the source. Once the TTL is up, the old suggestions are still given
+ * while a refresh runs in the background, and are replaced when it is done. Before the first load completes,
+ * there are no suggestions.</p>
+ *
+ * <p>Sources run asynchronously by default. Sources that are not thread safe, e.g. ones that read the world,
+ * can be run on the main thread instead with {@link Creator#mainThread()}. Only the snapshot of the source is
+ * taken there, sorting it for completion is still done asynchronously.</p>
+ */
+public class SuggestionProvider {
+
+    public static final long DEFAULT_TTL_MILLIS = 5000;
+
+    private final Plugin plugin;
+    private final Supplier<? extends Collection<String>> source;
+    private final AtomicBoolean refreshing;
+
+    private long ttlNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TTL_MILLIS);
+    private boolean mainThread = false;
+
+    private volatile SuggestionTable table = SuggestionTable.EMPTY;
+    private volatile long expiresAt;
+    private volatile boolean loaded = false;
+
+    private SuggestionProvider(@NotNull Plugin plugin, @NotNull Supplier<? extends Collection<String>> source) {
+        this.plugin = plugin;
+        this.source = source;
+        this.refreshing = new AtomicBoolean(false);
+    }
+
+    /**
+     * Gets the current suggestions, starting a background refresh if they are expired.
+     *
+     * @return An unmodifiable sorted list of suggestions, empty if not yet loaded.
+     */
+    @NotNull
+    public List<String> get() {
+        return this.getTable().matching("");
+    }
+
+    /**
+     * Gets the current suggestion table, starting a background refresh if it is expired.
+     *
+     * @return The {@link SuggestionTable}.
+     */
+    @NotNull
+    SuggestionTable getTable() {
+        if (!this.loaded || System.nanoTime() - this.expiresAt >= 0) {
+            this.refresh();
+        }
+        return this.table;
+    }
+
+    /**
+     * Start loading suggestions from the source in the background, unless a load is already running.
+     *
+     * @return True if a refresh was started, else false.
+     */
+    public boolean refresh() {
+        if (!this.refreshing.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            if (this.mainThread) {
+                Bukkit.getScheduler().runTask(this.plugin, this::snapshot);
+            } else {
+                Bukkit.getScheduler().runTaskAsynchronously(this.plugin, this::load);
+            }
+        } catch (RuntimeException e) {
+            // e.g. plugin is disabled and can no longer schedule tasks.
+            this.refreshing.set(false);
+            Logging.debug("Unable to schedule flag suggestion refresh: %s", e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    private void snapshot() {
+        Collection<String> candidates;
+        try {
+            candidates = new ArrayList<>(this.source.get());
+        } catch (RuntimeException e) {
+            this.failed(e);
+            return;
+        }
+        try {
+            Bukkit.getScheduler().runTaskAsynchronously(this.plugin, () -> this.update(candidates));
+        } catch (RuntimeException e) {
+            this.update(candidates);
+        }
+    }
+
+    private void load() {
+        Collection<String> candidates;
+        try {
+            candidates = this.source.get();
+        } catch (RuntimeException e) {
+            this.failed(e);
+            return;
+        }
+        this.update(candidates);
+    }
+
+    private void update(Collection<String> candidates) {
+        this.table = SuggestionTable.of(candidates);
+        this.expiresAt = System.nanoTime() + this.ttlNanos;
+        this.loaded = true;
+        this.refreshing.set(false);
+    }
+
+    /**
+     * Keep the old suggestions, and only retry after another TTL.
+     */
+    private void failed(RuntimeException e) {
+        Logging.warning("Unable to load flag suggestions: %s", e.getMessage());
+        this.expiresAt = System.nanoTime() + this.ttlNanos;
+        this.loaded = true;
+        this.refreshing.set(false);
+    }
+
+    /**
+     * Gets if suggestions are expired or not yet loaded.
+     *
+     * @return True if a refresh is due, else false.
+     */
+    public boolean isStale() {
+        return !this.loaded || System.nanoTime() - this.expiresAt >= 0;
+    }
+
+    public boolean isRefreshing() {
+        return this.refreshing.get();
+    }
+
+    public long getTtl(@NotNull TimeUnit unit) {
+        return unit.convert(this.ttlNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isMainThread() {
+        return this.mainThread;
+    }
+
+    public static class Creator {
+
+        private final SuggestionProvider provider;
+        private boolean preload = false;
+
+        /**
+         * @param plugin    Plugin to schedule refreshes with.
+         * @param source    Loads the full set of suggestions.
+         */
+        public Creator(@NotNull Plugin plugin, @NotNull Supplier<? extends Collection<String>> source) {
+            this.provider = new SuggestionProvider(Objects.requireNonNull(plugin), Objects.requireNonNull(source));
+        }
+
+        public @NotNull Creator ttl(long ttl, @NotNull TimeUnit unit) {
+            if (ttl <= 0) {
+                throw new IllegalArgumentException("Suggestion TTL must be positive!");
+            }
+            this.provider.ttlNanos = unit.toNanos(ttl);
+            return this;
+        }
+
+        /**
+         * Run the source on the main thread.
+         */
+        public @NotNull Creator mainThread() {
+            this.provider.mainThread = true;
+            return this;
+        }
+
+        /**
+         * Start loading suggestions on create, instead of on first completion.
+         */
+        public @NotNull Creator preload() {
+            this.preload = true;
+            return this;
+        }
+
+        public @NotNull SuggestionProvider create() {
+            if (this.preload) {
+                this.provider.refresh();
+            }
+            return this.provider;
+        }
+    }
+}
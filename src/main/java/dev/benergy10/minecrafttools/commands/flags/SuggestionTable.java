@@ -0,0 +1,171 @@
+package dev.benergy10.minecrafttools.commands.flags;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Immutable table of tab-completion candidates, sorted ignoring case.</p>
+ *
+ * <p>Candidates starting with a prefix form a single range in the table, which is found by binary search.
+ * So filtering costs depend on the number of matches, not the number of candidates.</p>
+ *
+ * <p>A candidate can be an alias of another one. Aliases only show up when something is typed, and the
+ * candidate they stand for does not already match. Candidates can also be tagged with a number, such as
+ * a flag ordinal, so they can be excluded while filtering.</p>
+ */
+final class SuggestionTable {
+
+    static final int NO_TAG = -1;
+    static final SuggestionTable EMPTY = new SuggestionTable(new Entry[0]);
+
+    /**
+     * Create a table of plain candidates.
+     *
+     * @param candidates    The candidates, can be null.
+     * @return A new {@link SuggestionTable}.
+     */
+    @NotNull
+    static SuggestionTable of(@Nullable Collection<String> candidates) {
+        if (candidates == null || candidates.isEmpty()) {
+            return EMPTY;
+        }
+        Builder builder = new Builder(candidates.size());
+        for (String candidate : candidates) {
+            if (candidate != null) {
+                builder.add(candidate, null, NO_TAG);
+            }
+        }
+        return builder.build();
+    }
+
+    private final String[] candidates;
+    private final String[] aliasOf;
+    private final int[] tags;
+    private final List<String> candidateList;
+    private final boolean hasAliases;
+
+    private SuggestionTable(Entry[] entries) {
+        Arrays.sort(entries, (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(a.candidate, b.candidate));
+        this.candidates = new String[entries.length];
+        this.aliasOf = new String[entries.length];
+        this.tags = new int[entries.length];
+        boolean hasAliases = false;
+        for (int i = 0; i < entries.length; i++) {
+            this.candidates[i] = entries[i].candidate;
+            this.aliasOf[i] = entries[i].aliasOf;
+            this.tags[i] = entries[i].tag;
+            hasAliases |= entries[i].aliasOf != null;
+        }
+        this.candidateList = Collections.unmodifiableList(Arrays.asList(this.candidates));
+        this.hasAliases = hasAliases;
+    }
+
+    /**
+     * Gets the candidates that start with a prefix, ignoring case.
+     *
+     * @param prefix    The partially typed argument.
+     * @return An unmodifiable list of matching candidates.
+     */
+    @NotNull
+    List<String> matching(@NotNull String prefix) {
+        return matching(prefix, null);
+    }
+
+    /**
+     * Gets the candidates that start with a prefix, ignoring case.
+     *
+     * @param prefix        The partially typed argument.
+     * @param excludedTags  Tags of candidates to leave out, can be null.
+     * @return An unmodifiable list of matching candidates.
+     */
+    @NotNull
+    List<String> matching(@NotNull String prefix, @Nullable BitSet excludedTags) {
+        int from = lowerBound(prefix);
+        int to = from;
+        while (to < this.candidates.length && startsWith(this.candidates[to], prefix)) {
+            to++;
+        }
+        if (!this.hasAliases && (excludedTags == null || excludedTags.isEmpty())) {
+            return this.candidateList.subList(from, to);
+        }
+        List<String> matches = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            if (this.tags[i] != NO_TAG && excludedTags != null && excludedTags.get(this.tags[i])) {
+                continue;
+            }
+            String alias = this.aliasOf[i];
+            if (alias == null || (!prefix.isEmpty() && !startsWith(alias, prefix))) {
+                matches.add(this.candidates[i]);
+            }
+        }
+        return Collections.unmodifiableList(matches);
+    }
+
+    int size() {
+        return this.candidates.length;
+    }
+
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = this.candidates.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(this.candidates[mid], prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean startsWith(String candidate, String prefix) {
+        return candidate.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    /**
+     * Collects candidates into a new table.
+     */
+    static final class Builder {
+
+        private final List<Entry> entries;
+
+        Builder(int expectedSize) {
+            this.entries = new ArrayList<>(expectedSize);
+        }
+
+        /**
+         * @param candidate The candidate text.
+         * @param aliasOf   The candidate this is an alias of, if any.
+         * @param tag       Tag to exclude the candidate by, or {@link #NO_TAG}.
+         * @return The builder.
+         */
+        Builder add(@NotNull String candidate, @Nullable String aliasOf, int tag) {
+            this.entries.add(new Entry(candidate, aliasOf, tag));
+            return this;
+        }
+
+        SuggestionTable build() {
+            return this.entries.isEmpty() ? EMPTY : new SuggestionTable(this.entries.toArray(new Entry[0]));
+        }
+    }
+
+    private static final class Entry {
+        private final String candidate;
+        private final String aliasOf;
+        private final int tag;
+
+        private Entry(String candidate, String aliasOf, int tag) {
+            this.candidate = candidate;
+            this.aliasOf = aliasOf;
+            this.tag = tag;
+        }
+    }
+}
@@ -1,47 +1,82 @@
 package dev.benergy10.minecrafttools.configs;
 
 import com.google.common.base.Strings;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import dev.benergy10.minecrafttools.utils.Logging;
+import dev.benergy10.minecrafttools.utils.MainThread;
+import dev.benergy10.minecrafttools.utils.WorkerThread;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.regex.Pattern;
 
 public class CommentedYamlFile implements YamlFile {
 
     private static final int DEPTH_SPACES = 2;
-    private static final Pattern CONFIG_KEY = Pattern.compile("[a-zA-Z0-9_-]+");
+    private static final String UNSAVED_SUFFIX = ".unsaved";
 
     private final File file;
-    private final YamlConfiguration config;
     private final Set<ConfigOption> configOptions;
     private final String[] header;
     private final Map<String, String[]> comments;
-    private final Map<ConfigOption, Object> cacheOptionValues;
+    private final Map<String, ConfigOption> optionsByPath;
+    private final String[] sortedPaths;
+    private final Map<ConfigOption, Integer> optionSlots;
+    private final Object lock;
+    private final Object saveLock;
+
+    private volatile YamlConfiguration config;
+    private volatile Object[] optionValues;
+    private volatile HashCode knownHash;
+    private volatile long knownModified;
+    private volatile boolean dirty = false;
+    private volatile ConfigSaver saver;
 
     public CommentedYamlFile(File file, Collection<ConfigOption<?>> configOptions, String...header) {
         this.file = file;
         this.configOptions = new LinkedHashSet<>(configOptions);
         this.header = header;
         this.comments = new HashMap<>(configOptions.size());
-        this.cacheOptionValues = new HashMap<>(configOptions.size());
+        this.optionsByPath = new HashMap<>(configOptions.size());
+        for (ConfigOption<?> option : this.configOptions) {
+            this.optionsByPath.putIfAbsent(option.getPath(), option);
+        }
+        this.sortedPaths = this.optionsByPath.keySet().toArray(new String[0]);
+        Arrays.sort(this.sortedPaths);
+        this.optionSlots = new HashMap<>(configOptions.size());
+        for (ConfigOption<?> option : this.configOptions) {
+            this.optionSlots.put(option, this.optionSlots.size());
+        }
+        this.optionValues = new Object[this.optionSlots.size()];
         this.config = new YamlConfiguration();
+        this.knownModified = -1;
+        this.lock = new Object();
+        this.saveLock = new Object();
         this.setup();
     }
 
@@ -52,33 +87,138 @@ public class CommentedYamlFile implements YamlFile {
         this.reload();
     }
 
+    /**
+     * Load the file, fill in defaults of missing options, and publish all option values as a new snapshot.
+     * The previous values are kept if the file cannot be loaded.
+     */
     private void load() {
-        this.cacheOptionValues.clear();
-        if (!initYamlFile()) {
+        Snapshot snapshot = this.readFile();
+        if (snapshot == null) {
             return;
         }
+        synchronized (this.lock) {
+            this.apply(snapshot);
+        }
         for (ConfigOption option : this.configOptions) {
-            if (this.config.get(option.getPath()) == null) {
-                this.setValue(option, option.getDefaultValue());
-                continue;
-            }
-            option.getSetConsumer().accept(this.getValue(option));
+            option.getSetConsumer().accept(snapshot.values[this.optionSlots.get(option)]);
         }
     }
 
-    private boolean initYamlFile() {
+    private @Nullable Snapshot readFile() {
         try {
             this.file.getParentFile().mkdirs();
             if (this.file.createNewFile()) {
                 Logging.info("Create new %s file.", this.file.getName());
             }
-            this.config.load(this.file);
+            long modified = this.file.lastModified();
+            byte[] data = Files.readAllBytes(this.file.toPath());
+            return this.parse(data, hash(data), modified);
         } catch (IOException | InvalidConfigurationException e) {
             Logging.severe("An error occurred while trying to load %s file.", this.file.getName());
             e.printStackTrace();
-            return false;
+            return null;
+        }
+    }
+
+    /**
+     * Parse file contents into a new config, and compute the value of every option from it.
+     */
+    private Snapshot parse(byte[] data, HashCode hash, long modified) throws InvalidConfigurationException {
+        YamlConfiguration newConfig = new YamlConfiguration();
+        newConfig.loadFromString(new String(data, StandardCharsets.UTF_8));
+        Object[] values = new Object[this.optionSlots.size()];
+        boolean filledDefaults = false;
+        for (ConfigOption option : this.configOptions) {
+            int slot = this.optionSlots.get(option);
+            if (newConfig.get(option.getPath()) == null) {
+                newConfig.set(option.getPath(), option.getHandler().serialize(option.getDefaultValue()));
+                values[slot] = option.getDefaultValue();
+                filledDefaults = true;
+                continue;
+            }
+            values[slot] = computeValue(newConfig, option);
+        }
+        return new Snapshot(newConfig, values, hash, modified, filledDefaults);
+    }
+
+    private void apply(Snapshot snapshot) {
+        this.config = snapshot.config;
+        this.optionValues = snapshot.values;
+        this.knownHash = snapshot.hash;
+        this.knownModified = snapshot.modified;
+        if (snapshot.filledDefaults) {
+            this.dirty = true;
         }
-        return true;
+    }
+
+    /**
+     * Read the file if it was changed by something else since it was last loaded or saved. Changes are found
+     * by modified time, then confirmed by content hash, so the file's own saves are ignored.
+     *
+     * @return The new contents, or null if unchanged or invalid.
+     */
+    @WorkerThread
+    @Nullable Snapshot readExternalChange() {
+        long modified = this.file.lastModified();
+        if (modified == this.knownModified) {
+            return null;
+        }
+        try {
+            byte[] data = Files.readAllBytes(this.file.toPath());
+            HashCode hash = hash(data);
+            if (hash.equals(this.knownHash)) {
+                this.knownModified = modified;
+                return null;
+            }
+            return this.parse(data, hash, modified);
+        } catch (IOException | InvalidConfigurationException e) {
+            // Not retried until the file changes again, an editor may still be writing it.
+            this.knownModified = modified;
+            Logging.severe("An error occurred while trying to reload %s file.", this.file.getName());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Publish contents read by {@link #readExternalChange()}, and call the set consumers of options whose
+     * value changed. The edit wins over changes not yet saved, which are written next to the file instead.
+     *
+     * @return The options that changed, with their new values.
+     */
+    @MainThread
+    @NotNull Map<ConfigOption, Object> applyExternalChange(@NotNull Snapshot snapshot) {
+        Map<ConfigOption, Object> changed = new LinkedHashMap<>();
+        synchronized (this.lock) {
+            if (this.dirty) {
+                this.config.options().header(null);
+                String data = this.addComments(this.config.saveToString());
+                try {
+                    Logging.warning("%s file was edited outside the server, replacing unsaved changes. "
+                            + "They were written to %s instead.",
+                            this.file.getName(), this.keepUnsaved(data).getFileName());
+                } catch (IOException e) {
+                    Logging.severe("An error occurred while trying to keep unsaved changes of %s file.",
+                            this.file.getName());
+                    e.printStackTrace();
+                }
+                this.dirty = false;
+            }
+            Object[] oldValues = this.optionValues;
+            for (ConfigOption option : this.configOptions) {
+                int slot = this.optionSlots.get(option);
+                if (!Objects.equals(oldValues[slot], snapshot.values[slot])) {
+                    changed.put(option, snapshot.values[slot]);
+                }
+            }
+            this.apply(snapshot);
+        }
+        changed.forEach((option, value) -> option.getSetConsumer().accept(value));
+        return Collections.unmodifiableMap(changed);
+    }
+
+    private static HashCode hash(byte[] data) {
+        return Hashing.sha256().hashBytes(data);
     }
 
     public boolean reload() {
@@ -87,26 +227,127 @@ public class CommentedYamlFile implements YamlFile {
     }
 
     public boolean save() {
-        try {
-            this.config.options().header(null);
-            this.config.save(this.file);
-            return this.writeToFile(this.addCommentsToFile());
-        } catch (IOException e) {
-            e.printStackTrace();
+        synchronized (this.saveLock) {
+            String data;
+            synchronized (this.lock) {
+                this.config.options().header(null);
+                data = this.addComments(this.config.saveToString());
+                this.dirty = false;
+            }
+            try {
+                if (this.isEditedOnDisk()) {
+                    // The edit wins, it is applied by a watcher or the next reload.
+                    Logging.warning("%s file was edited outside the server since it was loaded, not saving over "
+                            + "it. Unsaved changes were written to %s instead, reload to apply the edit.",
+                            this.file.getName(), this.keepUnsaved(data).getFileName());
+                    return false;
+                }
+                this.writeToFile(data);
+            } catch (IOException e) {
+                this.dirty = true;
+                Logging.severe("An error occurred while trying to save %s file.", this.file.getName());
+                e.printStackTrace();
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Checks if the file was changed by something else since it was last loaded or saved. There is still a
+     * short window between this check and the move in {@link #writeToFile(String)} where an edit can be lost.
+     */
+    private boolean isEditedOnDisk() throws IOException {
+        long modified = this.file.lastModified();
+        if (modified == 0L || modified == this.knownModified || this.knownHash == null) {
             return false;
         }
+        return !hash(Files.readAllBytes(this.file.toPath())).equals(this.knownHash);
+    }
+
+    /**
+     * Write changes that lost to an edit of the file next to it, so they are not silently dropped.
+     *
+     * @return Path of the written file.
+     */
+    private Path keepUnsaved(String data) throws IOException {
+        Path unsaved = this.file.toPath().resolveSibling(this.file.getName() + UNSAVED_SUFFIX);
+        Files.write(unsaved, data.getBytes(StandardCharsets.UTF_8));
+        return unsaved;
+    }
+
+    /**
+     * Save now if there are unsaved changes, e.g. when a change must be on disk before going on.
+     *
+     * @return True if there was nothing to save or saving succeeded, else false.
+     */
+    public boolean flushNow() {
+        // Waits for a save in progress, whose changes are not yet on disk even though no longer dirty.
+        synchronized (this.saveLock) {
+            return !this.dirty || this.save();
+        }
+    }
+
+    /**
+     * Stop {@link #save()} being needed after changes. Instead, {@link #setValue(ConfigOption, Object)} marks
+     * the file dirty, and the saver writes it in the background once changes settle.
+     *
+     * @param saver The {@link ConfigSaver} to save with.
+     */
+    public void enableWriteBehind(@NotNull ConfigSaver saver) {
+        ConfigSaver previous = this.saver;
+        if (previous != null && previous != saver) {
+            previous.untrack(this);
+        }
+        saver.track(this);
+        this.saver = saver;
+        if (this.dirty) {
+            saver.markDirty(this);
+        }
+    }
+
+    /**
+     * Go back to only saving when {@link #save()} is called, saving any unsaved changes now.
+     */
+    public void disableWriteBehind() {
+        ConfigSaver saver = this.saver;
+        if (saver != null) {
+            saver.untrack(this);
+        }
+        this.saver = null;
+        this.flushNow();
+    }
+
+    public boolean isWriteBehind() {
+        return this.saver != null;
     }
 
-    private String addCommentsToFile() throws IOException {
-        BufferedReader fileData = new BufferedReader(new FileReader(this.file));
+    /**
+     * @return True if there are changes not yet saved to the file.
+     */
+    public boolean isDirty() {
+        return this.dirty;
+    }
+
+    /**
+     * Insert the header and option comments into the saved yaml, in a single pass over its lines.
+     */
+    private String addComments(String data) {
         ConfigPath path = new ConfigPath();
-        ConfigContents configContents = new ConfigContents();
+        ConfigContents configContents = new ConfigContents(data.length() + data.length() / 2);
         int currentDepth = 0;
-        String line;
 
         this.insertComments(configContents, currentDepth, this.header);
 
-        while ((line = fileData.readLine()) != null) {
+        int lineStart = 0;
+        while (lineStart < data.length()) {
+            int lineEnd = data.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = data.length();
+            }
+            String line = data.substring(lineStart, lineEnd);
+            lineStart = lineEnd + 1;
+
             String key = getSectionKey(line);
             if (key == null) {
                 configContents.addLine(line);
@@ -122,30 +363,40 @@ public class CommentedYamlFile implements YamlFile {
             configContents.addLine(line);
         }
 
-        fileData.close();
         return configContents.build();
     }
 
+    /**
+     * Gets the key of a line such as {@code "  some-key: value"}, made of letters, digits, {@code _} and
+     * {@code -} followed directly by a colon.
+     */
     private String getSectionKey(String line) {
-        String[] split = line.trim().split(":", 2);
-        if (split.length != 2) {
-            return null;
+        int start = 0;
+        while (start < line.length() && Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+        int end = start;
+        while (end < line.length() && isKeyChar(line.charAt(end))) {
+            end++;
         }
-        String key = split[0];
-        if (!CONFIG_KEY.matcher(key).matches()) {
+        if (end == start || end >= line.length() || line.charAt(end) != ':') {
             return null;
         }
-        return key;
+        return line.substring(start, end);
+    }
+
+    private static boolean isKeyChar(char c) {
+        return (c >= 'a' && c <= 'z')
+                || (c >= 'A' && c <= 'Z')
+                || (c >= '0' && c <= '9')
+                || c == '_'
+                || c == '-';
     }
 
     private int getLineDepth(String line) {
         int spaces = 0;
-        for (char c : line.toCharArray()) {
-            if (c == ' ') {
-                spaces++;
-            } else {
-                break;
-            }
+        while (spaces < line.length() && line.charAt(spaces) == ' ') {
+            spaces++;
         }
         return spaces / DEPTH_SPACES;
     }
@@ -179,55 +430,160 @@ public class CommentedYamlFile implements YamlFile {
         return Strings.repeat(" ", depth * DEPTH_SPACES) + "# " + comment;
     }
 
-    private boolean writeToFile(String data) {
-        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
-            writer.write(data);
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false;
+    /**
+     * Write to a temp file next to the config and force it to disk, then move it into place, so the config is
+     * never left half written. The temp file is created like a plain file write, and takes the permissions
+     * of the existing config.
+     */
+    private void writeToFile(String data) throws IOException {
+        Path target = this.file.toPath();
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = parent.resolve(this.file.getName() + ".tmp");
+        try {
+            byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            copyPermissions(target, temp);
+            // Known before the move, so a watcher never mistakes this save for an external change.
+            this.knownHash = hash(bytes);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            this.knownModified = this.file.lastModified();
+            forceDirectory(parent);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void copyPermissions(Path from, Path to) throws IOException {
+        if (!Files.exists(from) || !Files.getFileStore(to).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            return;
+        }
+        Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+    }
+
+    /**
+     * Force the rename to disk too, where the platform allows opening a folder.
+     */
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // Not supported on every platform, e.g. Windows.
         }
-        return true;
     }
 
     public <T> boolean setValue(ConfigOption<T> option, T value) {
-        if (!this.configOptions.contains(option)) {
-            throw new IllegalArgumentException("Config option not supported: " + option);
+        int slot = this.getSlot(option);
+        synchronized (this.lock) {
+            this.config.set(option.getPath(), option.getHandler().serialize(value));
+            Object[] values = this.optionValues.clone();
+            values[slot] = value;
+            this.optionValues = values;
+            this.dirty = true;
         }
-        this.config.set(option.getPath(), option.getHandler().serialize(value));
-        this.cacheOptionValues.put(option, value);
         option.getSetConsumer().accept(value);
+        ConfigSaver saver = this.saver;
+        if (saver != null) {
+            saver.markDirty(this);
+        }
         return true;
     }
 
     @Override
     public boolean setValue(String optionPath, Object value) {
-        return getOptionFromPath(optionPath)
-                .map((Function<ConfigOption, Boolean>) opt -> this.setValue(opt, value))
-                .orElse(false);
+        ConfigOption option = this.optionsByPath.get(optionPath);
+        return option != null && this.setValue(option, value);
     }
 
+    /**
+     * Gets the value of an option. Safe to call from any thread, values are read from an immutable snapshot
+     * that is replaced as a whole on every change.
+     *
+     * @param option    The option.
+     * @param <T>       The value type.
+     * @return The option value.
+     */
     public <T> T getValue(ConfigOption<T> option) {
-        if (!this.configOptions.contains(option)) {
-            throw new IllegalArgumentException("Config option not supported: " + option);
-        }
-        return (T) this.cacheOptionValues.computeIfAbsent(option, (ConfigOption opt) -> computeValue(opt));
+        return (T) this.optionValues[this.getSlot(option)];
     }
 
     @Override
     public @Nullable Object getValue(String optionPath) {
-        return getOptionFromPath(optionPath).map(this::getValue).orElse(null);
+        ConfigOption option = this.optionsByPath.get(optionPath);
+        return option == null ? null : this.getValue(option);
     }
 
-    private Object computeValue(ConfigOption option) {
-        return option.getHandler().deserialize(option.getHandler().getData(this.config, option.getPath()));
+    private int getSlot(ConfigOption<?> option) {
+        Integer slot = this.optionSlots.get(option);
+        if (slot == null) {
+            throw new IllegalArgumentException("Config option not supported: " + option);
+        }
+        return slot;
+    }
+
+    private static Object computeValue(YamlConfiguration config, ConfigOption option) {
+        return option.getHandler().deserialize(option.getHandler().getData(config, option.getPath()));
     }
 
     @Override
     public @NotNull Optional<ConfigOption> getOptionFromPath(String optionPath) {
-        Optional<ConfigOption> option = this.configOptions.stream()
-                .filter(opt -> opt.getPath().equals(optionPath))
-                .findFirst();
-        return option;
+        return Optional.ofNullable(this.optionsByPath.get(optionPath));
+    }
+
+    /**
+     * Gets all options with a path starting with a prefix, e.g. {@code "database."} for every option in the
+     * database section.
+     *
+     * @param pathPrefix    The path prefix.
+     * @return Matching options, sorted by path.
+     */
+    public @NotNull List<ConfigOption> getOptionsUnder(@NotNull String pathPrefix) {
+        List<String> paths = this.suggestPaths(pathPrefix);
+        List<ConfigOption> options = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            options.add(this.optionsByPath.get(path));
+        }
+        return options;
+    }
+
+    /**
+     * Gets option paths starting with a partially typed path, for tab-completion.
+     *
+     * @param typedPath The partially typed path.
+     * @return An unmodifiable list of matching paths, sorted.
+     */
+    public @NotNull List<String> suggestPaths(@NotNull String typedPath) {
+        int from = this.lowerBound(typedPath);
+        int to = from;
+        while (to < this.sortedPaths.length && this.sortedPaths[to].startsWith(typedPath)) {
+            to++;
+        }
+        return Collections.unmodifiableList(Arrays.asList(this.sortedPaths).subList(from, to));
+    }
+
+    private int lowerBound(String path) {
+        int low = 0;
+        int high = this.sortedPaths.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.sortedPaths[mid].compareTo(path) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
     }
 
     public Collection<ConfigOption> getSupportedOptions() {
@@ -238,6 +594,11 @@ public class CommentedYamlFile implements YamlFile {
         return file;
     }
 
+    /**
+     * Gets the underlying config. It is replaced when the file is reloaded, so do not keep hold of it.
+     *
+     * @return The current {@link YamlConfiguration}.
+     */
     public YamlConfiguration getConfig() {
         return config;
     }
@@ -245,4 +606,32 @@ public class CommentedYamlFile implements YamlFile {
     public String[] getHeader() {
         return header;
     }
+
+    /**
+     * Parsed file contents with the value of every option.
+     */
+    static final class Snapshot {
+        private final YamlConfiguration config;
+        private final Object[] values;
+        private final HashCode hash;
+        private final long modified;
+        private final boolean filledDefaults;
+
+        private Snapshot(YamlConfiguration config,
+                         Object[] values,
+                         HashCode hash,
+                         long modified,
+                         boolean filledDefaults) {
+
+            this.config = config;
+            this.values = values;
+            this.hash = hash;
+            this.modified = modified;
+            this.filledDefaults = filledDefaults;
+        }
+
+        boolean hasFilledDefaults() {
+            return filledDefaults;
+        }
+    }
 }
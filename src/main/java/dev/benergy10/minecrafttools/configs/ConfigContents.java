@@ -8,6 +8,10 @@ public class ConfigContents {
         this.builder = new StringBuilder();
     }
 
+    public ConfigContents(int expectedLength) {
+        this.builder = new StringBuilder(expectedLength);
+    }
+
     public ConfigContents addLine(String line) {
         this.builder.append(line).append(System.lineSeparator());
         return this;
@@ -0,0 +1,161 @@
+package dev.benergy10.minecrafttools.configs;
+
+import dev.benergy10.minecrafttools.utils.Logging;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Background saver for config files in write-behind mode, enabled with
+ * {@link CommentedYamlFile#enableWriteBehind(ConfigSaver)}.</p>
+ *
+ * <p>Changes to a file only mark it dirty. The file is saved once no change has been made for the quiet period,
+ * or once the max delay since its first unsaved change has passed, so a burst of changes costs a single write.
+ * A failed save is not retried until the next change, {@link CommentedYamlFile#flushNow()} or
+ * {@link #shutdown()}.</p>
+ */
+public class ConfigSaver {
+
+    public static final long DEFAULT_QUIET_PERIOD_MILLIS = 1000;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 10000;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final long quietPeriodNanos;
+    private final long maxDelayNanos;
+    private final Map<CommentedYamlFile, Pending> pending;
+    private final Set<CommentedYamlFile> files;
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param threadName    Name of the saver thread.
+     */
+    public ConfigSaver(@NotNull String threadName) {
+        this(threadName, DEFAULT_QUIET_PERIOD_MILLIS, DEFAULT_MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param threadName    Name of the saver thread.
+     * @param quietPeriod   Save once no change has been made for this long.
+     * @param maxDelay      Save at most this long after the first unsaved change.
+     * @param unit          Time unit of the quiet period and max delay.
+     */
+    public ConfigSaver(@NotNull String threadName, long quietPeriod, long maxDelay, @NotNull TimeUnit unit) {
+        if (quietPeriod < 0 || maxDelay < quietPeriod) {
+            throw new IllegalArgumentException("Quiet period cannot be negative or longer than max delay!");
+        }
+        this.quietPeriodNanos = unit.toNanos(quietPeriod);
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.pending = new ConcurrentHashMap<>();
+        this.files = ConcurrentHashMap.newKeySet();
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    void track(@NotNull CommentedYamlFile file) {
+        this.files.add(file);
+    }
+
+    void untrack(@NotNull CommentedYamlFile file) {
+        this.files.remove(file);
+        this.pending.remove(file);
+    }
+
+    /**
+     * Schedule a save of a file that has just been changed.
+     *
+     * @param file  The changed file.
+     */
+    void markDirty(@NotNull CommentedYamlFile file) {
+        if (this.shutdown) {
+            file.flushNow();
+            return;
+        }
+        long now = System.nanoTime();
+        try {
+            Pending filePending = this.pending.computeIfAbsent(file, f -> {
+                this.executor.schedule(() -> this.check(f), this.quietPeriodNanos, TimeUnit.NANOSECONDS);
+                return new Pending(now);
+            });
+            filePending.lastChange = now;
+        } catch (RejectedExecutionException e) {
+            // Shut down in the meantime.
+            file.flushNow();
+        }
+    }
+
+    private void check(CommentedYamlFile file) {
+        Pending filePending = this.pending.get(file);
+        if (filePending == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long due = Math.min(filePending.lastChange + this.quietPeriodNanos,
+                filePending.firstChange + this.maxDelayNanos);
+        if (due - now > 0) {
+            this.executor.schedule(() -> this.check(file), due - now, TimeUnit.NANOSECONDS);
+            return;
+        }
+        // Removed before saving, so a change made during the save schedules another one.
+        this.pending.remove(file);
+        file.flushNow();
+    }
+
+    /**
+     * Save all files with unsaved changes now, on the calling thread. This includes files whose last save
+     * failed, which are no longer scheduled.
+     */
+    public void flushNow() {
+        for (CommentedYamlFile file : this.files) {
+            this.pending.remove(file);
+            file.flushNow();
+        }
+    }
+
+    /**
+     * Stop the saver thread and save all files with unsaved changes. Later changes are saved right away.
+     */
+    public void shutdown() {
+        this.shutdown = true;
+        // Lets a save in progress finish, and drops the scheduled ones as they are flushed below.
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                Logging.warning("Config saver did not stop in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.flushNow();
+    }
+
+    public boolean isShutdown() {
+        return this.shutdown;
+    }
+
+    public long getQuietPeriod(@NotNull TimeUnit unit) {
+        return unit.convert(this.quietPeriodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxDelay(@NotNull TimeUnit unit) {
+        return unit.convert(this.maxDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static final class Pending {
+        private final long firstChange;
+        private volatile long lastChange;
+
+        private Pending(long firstChange) {
+            this.firstChange = firstChange;
+            this.lastChange = firstChange;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package dev.benergy10.minecrafttools.configs;
+
+import dev.benergy10.minecrafttools.utils.Logging;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p>Hot reloads config files when they are edited outside the server.</p>
+ *
+ * <p>Watched files are reloaded once they have had no changes for the debounce delay, so an editor writing a
+ * file in several steps causes a single reload. Reading and parsing happen on the watcher's own thread, and
+ * files that were only saved by the plugin itself are skipped by content hash. The options that changed are
+ * then applied together on the main thread, calling their set consumers and the file's listener.</p>
+ *
+ * <p>An edit of the file always wins over changes made in game that are not yet saved. Those are written to a
+ * {@code .unsaved} file next to the config with a warning, whether the edit is seen by the watcher first or
+ * by a save.</p>
+ */
+public class ConfigWatcher {
+
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+
+    private final Plugin plugin;
+    private final WatchService watchService;
+    private final ScheduledThreadPoolExecutor executor;
+    private final long debounceMillis;
+    private final Map<Path, Watched> watchedFiles;
+    private final Map<Path, WatchKey> watchedDirectories;
+
+    /**
+     * @param plugin    The plugin to apply changes on the main thread with.
+     * @throws IOException If the file system cannot be watched.
+     */
+    public ConfigWatcher(@NotNull Plugin plugin) throws IOException {
+        this(plugin, DEFAULT_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param plugin    The plugin to apply changes on the main thread with.
+     * @param debounce  Reload once a file has had no changes for this long.
+     * @param unit      Time unit of the debounce.
+     * @throws IOException If the file system cannot be watched.
+     */
+    public ConfigWatcher(@NotNull Plugin plugin, long debounce, @NotNull TimeUnit unit) throws IOException {
+        if (debounce < 0) {
+            throw new IllegalArgumentException("Debounce cannot be negative!");
+        }
+        this.plugin = plugin;
+        this.debounceMillis = unit.toMillis(debounce);
+        this.watchedFiles = new ConcurrentHashMap<>();
+        this.watchedDirectories = new ConcurrentHashMap<>();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, plugin.getName() + "-config-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        Thread watchThread = new Thread(this::watchLoop, plugin.getName() + "-config-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * Start hot reloading a file.
+     *
+     * @param file      The file to watch.
+     * @param listener  Called on the main thread with the options that changed and their new values, can be null.
+     * @return This {@link ConfigWatcher}.
+     * @throws IOException If the file's folder cannot be watched.
+     */
+    public @NotNull ConfigWatcher watch(@NotNull CommentedYamlFile file,
+                                        @Nullable Consumer<Map<ConfigOption, Object>> listener) throws IOException {
+
+        Path path = file.getFile().toPath().toAbsolutePath().normalize();
+        Path directory = path.getParent();
+        if (!this.watchedDirectories.containsKey(directory)) {
+            this.watchedDirectories.put(directory, directory.register(this.watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+        }
+        this.watchedFiles.put(path, new Watched(file, listener));
+        return this;
+    }
+
+    /**
+     * Stop hot reloading a file.
+     *
+     * @param file  The file to stop watching.
+     */
+    public synchronized void unwatch(@NotNull CommentedYamlFile file) {
+        Watched watched = this.watchedFiles.remove(file.getFile().toPath().toAbsolutePath().normalize());
+        if (watched != null && watched.pendingReload != null) {
+            watched.pendingReload.cancel(false);
+        }
+    }
+
+    /**
+     * Stop watching all files.
+     */
+    public void shutdown() {
+        try {
+            this.watchService.close();
+        } catch (IOException e) {
+            Logging.warning("Unable to close config watcher: %s", e.getMessage());
+        }
+        this.executor.shutdown();
+        this.watchedFiles.clear();
+    }
+
+    private void watchLoop() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = this.watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    this.watchedFiles.forEach((path, watched) -> this.scheduleReload(watched));
+                    continue;
+                }
+                Watched watched = this.watchedFiles.get(directory.resolve((Path) event.context()));
+                if (watched != null) {
+                    this.scheduleReload(watched);
+                }
+            }
+            key.reset();
+        }
+    }
+
+    private synchronized void scheduleReload(Watched watched) {
+        if (watched.pendingReload != null) {
+            watched.pendingReload.cancel(false);
+        }
+        if (!this.executor.isShutdown()) {
+            watched.pendingReload = this.executor.schedule(() -> this.reload(watched),
+                    this.debounceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void reload(Watched watched) {
+        CommentedYamlFile.Snapshot snapshot = watched.file.readExternalChange();
+        if (snapshot == null) {
+            return;
+        }
+        Bukkit.getScheduler().runTask(this.plugin, () -> {
+            Map<ConfigOption, Object> changed = watched.file.applyExternalChange(snapshot);
+            Logging.info("Reloaded %s file, %d options changed.", watched.file.getFile().getName(), changed.size());
+            if (watched.listener != null && !changed.isEmpty()) {
+                watched.listener.accept(changed);
+            }
+            if (snapshot.hasFilledDefaults() && !this.executor.isShutdown()) {
+                // Write back defaults of options missing from the edited file.
+                this.executor.execute(watched.file::flushNow);
+            }
+        });
+    }
+
+    private static final class Watched {
+        private final CommentedYamlFile file;
+        private final Consumer<Map<ConfigOption, Object>> listener;
+        private ScheduledFuture<?> pendingReload;
+
+        private Watched(CommentedYamlFile file, Consumer<Map<ConfigOption, Object>> listener) {
+            this.file = file;
+            this.listener = listener;
+        }
+    }
+}
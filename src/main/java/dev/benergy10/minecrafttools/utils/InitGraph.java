@@ -0,0 +1,332 @@
+package dev.benergy10.minecrafttools.utils;
+
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Named plugin init tasks with dependencies, run at enable by
+ * {@link dev.benergy10.minecrafttools.MinecraftPlugin#init(InitGraph)}.</p>
+ *
+ * <p>Each task runs either on the main thread or on a worker pool. A task starts as soon as all tasks it depends
+ * on are done, so independent async tasks run in parallel, and a main thread task waits for the async tasks it
+ * depends on. Enable then takes about as long as the slowest chain of dependent tasks.</p>
+ *
+ * <p>If any task fails, no further tasks are started, and a report of what ran, failed and was skipped is logged.
+ * Async tasks must not wait on the main thread, e.g. with {@code callSyncMethod}, as it is busy running the
+ * graph until all tasks are done.</p>
+ */
+public class InitGraph {
+
+    public enum Affinity {
+        MAIN, ASYNC
+    }
+
+    private enum Status {
+        PENDING, RUNNING, DONE, FAILED
+    }
+
+    private static final int MIN_WORKER_THREADS = 4;
+
+    private final Map<String, Task> tasks;
+
+    public InitGraph() {
+        this.tasks = new LinkedHashMap<>();
+    }
+
+    /**
+     * Add a task to run on the main thread.
+     *
+     * @param name          Unique name of the task.
+     * @param action        The task to run.
+     * @param dependencies  Names of tasks that must be done first.
+     * @return This {@link InitGraph}.
+     */
+    public @NotNull InitGraph mainTask(@NotNull String name,
+                                       @NotNull Runnable action,
+                                       @NotNull String... dependencies) {
+
+        return this.task(name, Affinity.MAIN, action, dependencies);
+    }
+
+    /**
+     * Add a task to run on a worker thread. It must not use Bukkit API that is only safe on the main thread.
+     *
+     * @param name          Unique name of the task.
+     * @param action        The task to run.
+     * @param dependencies  Names of tasks that must be done first.
+     * @return This {@link InitGraph}.
+     */
+    public @NotNull InitGraph asyncTask(@NotNull String name,
+                                        @NotNull Runnable action,
+                                        @NotNull String... dependencies) {
+
+        return this.task(name, Affinity.ASYNC, action, dependencies);
+    }
+
+    /**
+     * Add a task.
+     *
+     * @param name          Unique name of the task.
+     * @param affinity      Thread to run the task on.
+     * @param action        The task to run.
+     * @param dependencies  Names of tasks that must be done first. They may be added later.
+     * @return This {@link InitGraph}.
+     */
+    public @NotNull InitGraph task(@NotNull String name,
+                                   @NotNull Affinity affinity,
+                                   @NotNull Runnable action,
+                                   @NotNull String... dependencies) {
+
+        if (this.tasks.containsKey(name)) {
+            throw new IllegalArgumentException("Init task '" + name + "' already exists!");
+        }
+        this.tasks.put(name, new Task(name, affinity, action, Arrays.asList(dependencies.clone())));
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return this.tasks.isEmpty();
+    }
+
+    /**
+     * Run all tasks, blocking the calling thread until they are done or one fails.
+     *
+     * @param plugin    The plugin, used to name worker threads.
+     * @param profiler  Profiler to record the time of each task with, can be null.
+     * @return True if all tasks succeeded, else false.
+     */
+    @MainThread
+    public boolean run(@NotNull Plugin plugin, @Nullable StartupProfiler profiler) {
+        Map<String, List<Task>> dependents = this.validate();
+        if (this.tasks.isEmpty()) {
+            return true;
+        }
+        Run run = new Run(plugin, profiler, dependents);
+        try {
+            return run.execute();
+        } finally {
+            run.workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Check that all dependencies exist and there are no cycles.
+     *
+     * @return Tasks that depend on each task.
+     */
+    private Map<String, List<Task>> validate() {
+        Map<String, List<Task>> dependents = new HashMap<>();
+        Map<String, Integer> remaining = new HashMap<>();
+        Deque<Task> ready = new ArrayDeque<>();
+        for (Task task : this.tasks.values()) {
+            for (String dependency : task.dependencies) {
+                if (!this.tasks.containsKey(dependency)) {
+                    throw new IllegalArgumentException("Init task '" + task.name
+                            + "' depends on unknown task '" + dependency + "'!");
+                }
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(task);
+            }
+            remaining.put(task.name, task.dependencies.size());
+            if (task.dependencies.isEmpty()) {
+                ready.add(task);
+            }
+        }
+
+        int sorted = 0;
+        while (!ready.isEmpty()) {
+            Task task = ready.poll();
+            sorted++;
+            for (Task dependent : dependents.getOrDefault(task.name, Collections.emptyList())) {
+                if (remaining.merge(dependent.name, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (sorted < this.tasks.size()) {
+            List<String> cyclic = new ArrayList<>();
+            remaining.forEach((name, count) -> {
+                if (count > 0) {
+                    cyclic.add(name);
+                }
+            });
+            throw new IllegalArgumentException("Init tasks have a dependency cycle between: " + cyclic);
+        }
+        return dependents;
+    }
+
+    /**
+     * State of a single run of the graph. Only the main thread schedules tasks, workers just report back
+     * through the completion queue.
+     */
+    private final class Run {
+
+        private final StartupProfiler profiler;
+        private final Map<String, List<Task>> dependents;
+        private final Map<String, Integer> remaining;
+        private final Map<String, Status> statuses;
+        private final Deque<Task> mainReady;
+        private final BlockingQueue<Completion> completions;
+        private final ExecutorService workers;
+
+        private int done = 0;
+
+        private Run(Plugin plugin, StartupProfiler profiler, Map<String, List<Task>> dependents) {
+            this.profiler = profiler;
+            this.dependents = dependents;
+            this.remaining = new HashMap<>();
+            this.statuses = new LinkedHashMap<>();
+            this.mainReady = new ArrayDeque<>();
+            this.completions = new LinkedBlockingQueue<>();
+
+            int asyncCount = (int) tasks.values().stream().filter(task -> task.affinity == Affinity.ASYNC).count();
+            // Init tasks are often disk bound, so allow some overlap even on few cores.
+            int threads = Math.max(1, Math.min(asyncCount,
+                    Math.max(MIN_WORKER_THREADS, Runtime.getRuntime().availableProcessors())));
+            String threadPrefix = plugin.getName() + "-init-worker-";
+            AtomicInteger threadCount = new AtomicInteger();
+            this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, threadPrefix + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private boolean execute() {
+            for (Task task : tasks.values()) {
+                this.statuses.put(task.name, Status.PENDING);
+                this.remaining.put(task.name, task.dependencies.size());
+            }
+            for (Task task : tasks.values()) {
+                if (task.dependencies.isEmpty()) {
+                    this.schedule(task);
+                }
+            }
+
+            while (this.done < tasks.size()) {
+                Completion completion = this.completions.poll();
+                if (completion == null) {
+                    Task task = this.mainReady.poll();
+                    if (task != null) {
+                        completion = this.runTask(task);
+                    } else {
+                        try {
+                            completion = this.completions.take();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            completion = new Completion(null, e);
+                        }
+                    }
+                }
+                if (!this.complete(completion)) {
+                    this.reportFailure(completion);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void schedule(Task task) {
+            if (task.affinity == Affinity.MAIN) {
+                this.mainReady.add(task);
+                return;
+            }
+            this.statuses.put(task.name, Status.RUNNING);
+            this.workers.execute(() -> this.completions.add(this.runTask(task)));
+        }
+
+        private Completion runTask(Task task) {
+            try {
+                if (this.profiler == null) {
+                    task.action.run();
+                } else {
+                    this.profiler.run("init", task.name, task.action);
+                }
+                return new Completion(task, null);
+            } catch (Throwable e) {
+                return new Completion(task, e);
+            }
+        }
+
+        /**
+         * @return True if the task succeeded, else false.
+         */
+        private boolean complete(Completion completion) {
+            if (completion.error != null) {
+                if (completion.task != null) {
+                    this.statuses.put(completion.task.name, Status.FAILED);
+                }
+                return false;
+            }
+            this.done++;
+            this.statuses.put(completion.task.name, Status.DONE);
+            for (Task dependent : this.dependents.getOrDefault(completion.task.name, Collections.emptyList())) {
+                if (this.remaining.merge(dependent.name, -1, Integer::sum) == 0) {
+                    this.schedule(dependent);
+                }
+            }
+            return true;
+        }
+
+        private void reportFailure(Completion completion) {
+            String failedName = completion.task == null ? "init" : completion.task.name;
+            Logging.severe("An error occurred while running init task '%s'!", failedName);
+            completion.error.printStackTrace();
+
+            List<String> done = new ArrayList<>();
+            List<String> running = new ArrayList<>();
+            List<String> skipped = new ArrayList<>();
+            this.statuses.forEach((name, status) -> {
+                if (status == Status.DONE) {
+                    done.add(name);
+                } else if (status == Status.RUNNING) {
+                    running.add(name);
+                } else if (status != Status.FAILED) {
+                    skipped.add(name);
+                }
+            });
+            Logging.severe("  Done: %s", done);
+            Logging.severe("  Interrupted: %s", running);
+            Logging.severe("  Skipped: %s", skipped);
+        }
+    }
+
+    private static final class Task {
+        private final String name;
+        private final Affinity affinity;
+        private final Runnable action;
+        private final List<String> dependencies;
+
+        private Task(String name, Affinity affinity, Runnable action, List<String> dependencies) {
+            this.name = name;
+            this.affinity = affinity;
+            this.action = action;
+            this.dependencies = dependencies;
+        }
+    }
+
+    private static final class Completion {
+        private final Task task;
+        private final Throwable error;
+
+        private Completion(Task task, Throwable error) {
+            this.task = task;
+            this.error = error;
+        }
+    }
+}
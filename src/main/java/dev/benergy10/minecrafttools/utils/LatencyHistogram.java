@@ -0,0 +1,113 @@
+package dev.benergy10.minecrafttools.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Histogram of latencies in nanoseconds, with a bucket for each power of two.</p>
+ *
+ * <p>Recording is lock-free and uses striped counters, so it is cheap even when many threads record at once.
+ * Percentiles are approximate, given as the upper bound of the bucket they fall in.</p>
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets;
+    private final LongAdder total;
+    private final LongAccumulator max;
+
+    public LatencyHistogram() {
+        this.buckets = new LongAdder[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+        this.total = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0L);
+    }
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos The latency in nanoseconds, negative values are counted as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0L);
+        this.buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value))].increment();
+        this.total.add(value);
+        this.max.accumulate(value);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : this.buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return this.total.sum();
+    }
+
+    public long getMaxNanos() {
+        return this.max.get();
+    }
+
+    public double getMeanNanos() {
+        long count = this.getCount();
+        return count == 0 ? 0 : (double) this.getTotalNanos() / count;
+    }
+
+    /**
+     * Gets the approximate latency at a percentile.
+     *
+     * @param percentile    The percentile, from 0 to 100.
+     * @return Upper bound in nanoseconds of the bucket the percentile falls in, or 0 if nothing is recorded.
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.buckets[i].sum();
+            count += counts[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100 * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(i == 0 ? 0 : (1L << i) - 1, this.getMaxNanos());
+            }
+        }
+        return this.getMaxNanos();
+    }
+
+    public void reset() {
+        for (LongAdder bucket : this.buckets) {
+            bucket.reset();
+        }
+        this.total.reset();
+        this.max.reset();
+    }
+
+    /**
+     * Summary of the histogram in microseconds.
+     *
+     * @return The summary text.
+     */
+    @Override
+    public @NotNull String toString() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+                this.getCount(),
+                this.getMeanNanos() / 1000,
+                this.getPercentileNanos(50) / 1000D,
+                this.getPercentileNanos(99) / 1000D,
+                this.getMaxNanos() / 1000D);
+    }
+}
@@ -0,0 +1,54 @@
+package dev.benergy10.minecrafttools.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A value that is only created on first use, instead of at startup. Thread safe, the value is created once.
+ *
+ * @param <T>   The value type.
+ */
+public final class Lazy<T> implements Supplier<T> {
+
+    public static <T> Lazy<T> of(@NotNull Supplier<T> supplier) {
+        return new Lazy<>(supplier);
+    }
+
+    private Supplier<T> supplier;
+    private volatile boolean initialised = false;
+    private T value;
+
+    private Lazy(@NotNull Supplier<T> supplier) {
+        this.supplier = Objects.requireNonNull(supplier);
+    }
+
+    /**
+     * Gets the value, creating it if this is the first use.
+     *
+     * @return The value.
+     */
+    @Override
+    public T get() {
+        if (!this.initialised) {
+            synchronized (this) {
+                if (!this.initialised) {
+                    this.value = this.supplier.get();
+                    this.supplier = null;
+                    this.initialised = true;
+                }
+            }
+        }
+        return this.value;
+    }
+
+    public boolean isInitialised() {
+        return this.initialised;
+    }
+
+    @Override
+    public String toString() {
+        return "Lazy{" + (this.initialised ? String.valueOf(this.value) : "not initialised") + '}';
+    }
+}
@@ -0,0 +1,17 @@
+package dev.benergy10.minecrafttools.utils;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks code that runs on the server main thread, where the Bukkit API can be used freely. It should be kept
+ * short, as it adds to tick time.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target({ElementType.METHOD, ElementType.CONSTRUCTOR, ElementType.PARAMETER, ElementType.TYPE})
+public @interface MainThread {
+}
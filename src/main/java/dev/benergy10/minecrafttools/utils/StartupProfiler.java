@@ -0,0 +1,192 @@
+package dev.benergy10.minecrafttools.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * <p>Records how long each startup phase of a plugin takes, and each component set up within them, such as
+ * commands, flag groups, config files and events.</p>
+ *
+ * <p>Components set up after startup, e.g. lazy ones on first use, are still recorded, but are not counted
+ * in the startup time.</p>
+ */
+public class StartupProfiler {
+
+    private static final int REPORT_COMPONENTS = 10;
+
+    private final List<Entry> phases;
+    private final List<Entry> components;
+    private volatile long startupNanos = -1;
+
+    public StartupProfiler() {
+        this.phases = Collections.synchronizedList(new ArrayList<>());
+        this.components = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    /**
+     * Run and time a startup phase.
+     *
+     * @param name      Name of the phase.
+     * @param action    The phase to run.
+     */
+    public void runPhase(@NotNull String name, @NotNull Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            this.phases.add(new Entry(null, name, System.nanoTime() - start, this.isFinished()));
+        }
+    }
+
+    /**
+     * Run and time setting up a component.
+     *
+     * @param type      Type of component, e.g. {@code "command"}.
+     * @param name      Name of the component.
+     * @param action    Sets up the component.
+     */
+    public void run(@NotNull String type, @NotNull String name, @NotNull Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            this.components.add(new Entry(type, name, System.nanoTime() - start, this.isFinished()));
+        }
+    }
+
+    /**
+     * Time creating a component.
+     *
+     * @param type      Type of component, e.g. {@code "config"}.
+     * @param name      Name of the component.
+     * @param action    Creates the component.
+     * @param <T>       The component type.
+     * @return The component.
+     */
+    public <T> T time(@NotNull String type, @NotNull String name, @NotNull Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            this.components.add(new Entry(type, name, System.nanoTime() - start, this.isFinished()));
+        }
+    }
+
+    /**
+     * Mark startup as done, fixing the startup time to the phases recorded so far.
+     */
+    public void finish() {
+        long total = 0;
+        synchronized (this.phases) {
+            for (Entry phase : this.phases) {
+                total += phase.nanos;
+            }
+        }
+        this.startupNanos = total;
+    }
+
+    public boolean isFinished() {
+        return this.startupNanos >= 0;
+    }
+
+    /**
+     * Gets the total time of all startup phases.
+     *
+     * @return Startup time in nanoseconds, or -1 if not yet finished.
+     */
+    public long getStartupNanos() {
+        return this.startupNanos;
+    }
+
+    public @NotNull List<Entry> getPhases() {
+        synchronized (this.phases) {
+            return new ArrayList<>(this.phases);
+        }
+    }
+
+    public @NotNull List<Entry> getComponents() {
+        synchronized (this.components) {
+            return new ArrayList<>(this.components);
+        }
+    }
+
+    /**
+     * Gets a readable report of the startup phases, and the slowest components.
+     *
+     * @return The report lines.
+     */
+    public @NotNull List<String> getReport() {
+        List<String> lines = new ArrayList<>();
+        lines.add(this.isFinished()
+                ? String.format("Started in %.1fms.", this.startupNanos / 1e6)
+                : "Still starting up.");
+        for (Entry phase : this.getPhases()) {
+            lines.add("  " + phase);
+        }
+        List<Entry> components = this.getComponents();
+        if (components.isEmpty()) {
+            return lines;
+        }
+        components.sort(Comparator.comparingLong(Entry::getNanos).reversed());
+        lines.add(String.format("Slowest of %d components:", components.size()));
+        for (int i = 0; i < Math.min(REPORT_COMPONENTS, components.size()); i++) {
+            lines.add("  " + components.get(i));
+        }
+        return lines;
+    }
+
+    /**
+     * A timed phase or component.
+     */
+    public static final class Entry {
+
+        private final String type;
+        private final String name;
+        private final long nanos;
+        private final boolean afterStartup;
+
+        private Entry(String type, String name, long nanos, boolean afterStartup) {
+            this.type = type;
+            this.name = name;
+            this.nanos = nanos;
+            this.afterStartup = afterStartup;
+        }
+
+        /**
+         * @return Type of component, or null for phases.
+         */
+        public @Nullable String getType() {
+            return type;
+        }
+
+        public @NotNull String getName() {
+            return name;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return True if set up after startup finished, e.g. lazily.
+         */
+        public boolean isAfterStartup() {
+            return afterStartup;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s%s: %.2fms%s",
+                    this.type == null ? "" : this.type + " ",
+                    this.name,
+                    this.nanos / 1e6,
+                    this.afterStartup ? " (after startup)" : "");
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package dev.benergy10.minecrafttools.utils;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks code that runs on a worker thread, off the server main thread. It must not touch the Bukkit API,
+ * except for the parts documented as thread safe.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target({ElementType.METHOD, ElementType.CONSTRUCTOR, ElementType.PARAMETER, ElementType.TYPE})
+public @interface WorkerThread {
+}